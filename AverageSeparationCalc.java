@@ -1,3 +1,5 @@
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,28 +21,109 @@ public class AverageSeparationCalc {
      * @return - map of actors to their average separation
      */
     public Map<String, Double> createAverageSeparationMap(Graph<String, List<String>> baconGraph, Graph<String, List<String>> baconBFS, Map<Integer, String> actorMap) {
-        // initializing the map and key set
-        Map<String, Double> averageSeparationMap = new HashMap<>();
-        Iterable<Integer> keySet = actorMap.keySet();
+        return createAverageSeparationMap(baconGraph, baconBFS, IntStringMap.from(actorMap));
+    }
 
-        // for each actor in the key set...
-        for (int key : keySet) {
+    /**
+     * Same as above, but reading the actors from an unboxed table of IDs to actors
+     *
+     * @param baconGraph - graph of every actor
+     * @param baconBFS - graph of all actors connected to Kevin Bacon
+     * @param actorTable - table of every actor
+     * @return - map of actors to their average separation
+     */
+    public Map<String, Double> createAverageSeparationMap(Graph<String, List<String>> baconGraph, Graph<String, List<String>> baconBFS, IntStringMap actorTable) {
+        // initializing the map
+        Map<String, Double> averageSeparationMap = new HashMap<>();
 
-            // get the actor
-            String actor = actorMap.get(key);
+        // for each actor in the table...
+        actorTable.forEach((key, actor) -> {
 
             // if that actor is connected to Kevin Bacon...
             if (baconBFS.hasVertex(actor)) {
 
                 // make the actor the center of the universe and calculate the average separation
-                Graph<String, List<String>> actorBFS = GraphLib.bfs(baconGraph, actor);
+                Graph<String, List<String>> actorBFS = baconGraph instanceof BipartiteBaconGraph
+                        ? ((BipartiteBaconGraph) baconGraph).bfs(actor)
+                        : GraphLib.bfs(baconGraph, actor);
                 double actorSeparation = GraphLib.averageSeparation(actorBFS, actor);
 
                 // map the actor to their separation
                 averageSeparationMap.put(actor, actorSeparation);
             }
+        });
+
+        return averageSeparationMap;
+    }
+
+    /**
+     * Same map as createAverageSeparationMap, but taking the actors connected to the center from a component index
+     * instead of from a BFS tree of the center
+     *
+     * @param baconGraph - graph of every actor
+     * @param components - connected components of the graph
+     * @param center - the center of the universe
+     * @return - map of actors to their average separation
+     */
+    public Map<String, Double> createAverageSeparationMap(Graph<String, List<String>> baconGraph, ComponentIndex components, String center) {
+        Map<String, Double> averageSeparationMap = new HashMap<>();
+
+        // for each actor connected to the center...
+        for (String actor : components.members(center)) {
+            Graph<String, List<String>> actorBFS = baconGraph instanceof BipartiteBaconGraph
+                    ? ((BipartiteBaconGraph) baconGraph).bfs(actor)
+                    : GraphLib.bfs(baconGraph, actor);
+            averageSeparationMap.put(actor, GraphLib.averageSeparation(actorBFS, actor));
         }
 
         return averageSeparationMap;
     }
+
+    /**
+     * Same map as createAverageSeparationMap, but with the BFS for each actor spread across worker threads
+     *
+     * @param baconGraph - compact graph of every actor
+     * @param baconBFS - graph of all actors connected to Kevin Bacon
+     * @param threads - number of worker threads
+     * @param listener - told about progress as actors finish (may be null)
+     * @return - map of actors to their average separation
+     */
+    public Map<String, Double> createAverageSeparationMap(CompactBaconGraph baconGraph, Graph<String, List<String>> baconBFS,
+                                                          int threads, ParallelSeparationEngine.ProgressListener listener) {
+        // collect the vertex id of every actor connected to Kevin Bacon; every actor in the actor map is a vertex
+        int[] sources = new int[baconGraph.numVertices()];
+        int numSources = 0;
+
+        for (int id = 0; id < baconGraph.numVertices(); id++) {
+            if (baconBFS.hasVertex(baconGraph.actor(id))) sources[numSources++] = id;
+        }
+
+        // run the separations in parallel
+        ParallelSeparationEngine engine = new ParallelSeparationEngine(baconGraph, threads);
+        return engine.averageSeparationMap(Arrays.copyOf(sources, numSources), listener);
+    }
+
+    /**
+     * The k actors connected to the center with the lowest average separation, the same as the top of
+     * createAverageSeparationMap, but cutting short the BFS of every actor that can't make it
+     *
+     * @param baconGraph - compact graph of every actor
+     * @param components - connected components of the graph
+     * @param center - the center of the universe
+     * @param k - number of actors wanted
+     * @param threads - number of worker threads
+     * @param listener - told about progress as actors finish (may be null)
+     * @return - the k actors with the lowest average separation, lowest first
+     */
+    public List<String> lowestAverageSeparations(CompactBaconGraph baconGraph, ComponentIndex components, String center, int k,
+                                                 int threads, ParallelSeparationEngine.ProgressListener listener) {
+        int[] sources = components.memberIds(center);
+
+        ParallelSeparationEngine engine = new ParallelSeparationEngine(baconGraph, threads);
+        List<String> lowest = new ArrayList<>();
+        for (int id : engine.lowestAverageSeparations(sources, sources.length, k, listener)) {
+            lowest.add(baconGraph.actor(id));
+        }
+        return lowest;
+    }
 }
@@ -0,0 +1,164 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of BFS results on the compact graph, one per center of the universe, so switching back to a recent center
+ * doesn't search the whole graph again. The results are the primitive arrays from GraphLib.hybridBFS rather than
+ * path tree Graphs, and the least recently used ones are evicted once they take more than the memory budget. Safe to
+ * share between sessions: a missing BFS is run outside the lock, so one session's search never holds up another's hits
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class BFSCache implements LiveBaconGraph.Listener {
+
+    private CompactBaconGraph graph;
+    private final long budgetBytes;
+    private final LinkedHashMap<Integer, BFSResult> results = new LinkedHashMap<>(16, 0.75f, true);   // access order
+    private long usedBytes;
+    private long hits, misses, evictions;
+
+    /**
+     * @param graph - the graph every cached BFS runs on
+     * @param budgetBytes - most bytes of results to keep; the most recent result is always kept, even if it is larger
+     */
+    public BFSCache(CompactBaconGraph graph, long budgetBytes) {
+        this.graph = graph;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @param center - the actor to search from
+     * @return - the BFS from the center, run now only if it isn't cached
+     * @throws IllegalArgumentException - if the center isn't in the graph
+     */
+    public BFSResult get(String center) {
+        int id;
+        synchronized (this) {
+            id = graph.indexOf(center);
+        }
+        if (id < 0) throw new IllegalArgumentException(center + " is not in the graph");
+        return get(id);
+    }
+
+    /**
+     * @param center - vertex id to search from
+     * @return - the BFS from the center, run now only if it isn't cached
+     */
+    public BFSResult get(int center) {
+        CompactBaconGraph searched;
+        synchronized (this) {
+            BFSResult result = results.get(center);
+            if (result != null) {
+                hits++;
+                return result;
+            }
+            misses++;
+            searched = graph;
+        }
+
+        // run the BFS without holding the lock
+        BFSResult result = GraphLib.hybridBFS(searched, center);
+
+        // make room for it, unless another session cached the same center meanwhile or the graph changed under it
+        synchronized (this) {
+            BFSResult cached = results.get(center);
+            if (cached != null) return cached;
+            if (searched != graph) return result;
+
+            results.put(center, result);
+            usedBytes += result.estimatedBytes();
+            evict();
+        }
+        return result;
+    }
+
+    /**
+     * @param center - vertex id
+     * @return - the cached BFS from the center (a hit), or null without running one
+     */
+    public synchronized BFSResult peek(int center) {
+        BFSResult result = results.get(center);
+        if (result != null) hits++;
+        return result;
+    }
+
+    /**
+     * @param center - vertex id
+     * @return - whether the BFS from the center is cached; doesn't count as a hit or a miss
+     */
+    public synchronized boolean contains(int center) {
+        return results.containsKey(center);
+    }
+
+    /**
+     * Moves the cache onto the graph a delta was applied to, repairing every cached result instead of dropping it
+     *
+     * @param delta - the applied delta, whose base must be the graph the cache was on
+     * @param updated - the graph delta.apply() returned
+     */
+    @Override
+    public synchronized void update(GraphDelta delta, CompactBaconGraph updated) {
+        if (delta.base() != graph) throw new IllegalArgumentException("The delta wasn't made from this cache's graph");
+
+        graph = updated;
+        usedBytes = 0;
+        for (Map.Entry<Integer, BFSResult> entry : results.entrySet()) {
+            BFSResult repaired = GraphLib.repairBFS(updated, entry.getValue(), delta);
+            entry.setValue(repaired);
+            usedBytes += repaired.estimatedBytes();
+        }
+        evict();
+    }
+
+    /**
+     * Drops every cached result, keeping the counters
+     */
+    public synchronized void clear() {
+        results.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BFS cache: " + results.size() + " centers, " + usedBytes / 1024 + " of " + budgetBytes / 1024 + " KB, "
+                + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * Evicts least recently used results until the cache is within budget or only one result is left
+     */
+    private void evict() {
+        Iterator<Map.Entry<Integer, BFSResult>> iterator = results.entrySet().iterator();
+
+        while (usedBytes > budgetBytes && results.size() > 1) {
+            usedBytes -= iterator.next().getValue().estimatedBytes();
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
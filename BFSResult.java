@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shortest path tree of a BFS kept as primitive arrays indexed by vertex id, instead of as a Graph
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class BFSResult {
+
+    private final int source;
+    private final int[] distances;  // hops from the source, or -1 if the vertex wasn't reached
+    private final int[] parents;    // previous vertex on the path back to the source, or -1 (source and unreached)
+    private final int numReached;   // including the source
+    private final int[] levelSizes; // number of vertices at each distance, from the BFS or counted when it didn't
+
+    public BFSResult(int source, int[] distances, int[] parents, int numReached) {
+        this(source, distances, parents, numReached, null);
+    }
+
+    /**
+     * Results are shared between sessions through the BFS cache, so they're complete once constructed: level counts
+     * the BFS didn't keep are counted here rather than on first use
+     *
+     * @param levelSizes - number of vertices reached at each distance, if the BFS counted them as it went (may be null)
+     */
+    public BFSResult(int source, int[] distances, int[] parents, int numReached, int[] levelSizes) {
+        this.source = source;
+        this.distances = distances;
+        this.parents = parents;
+        this.numReached = numReached;
+        this.levelSizes = levelSizes != null ? levelSizes : countLevels(distances);
+    }
+
+    public int source() {
+        return source;
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - number of hops from the source to v, or -1 if v can't be reached
+     */
+    public int distance(int v) {
+        return distances[v];
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - the vertex before v on its shortest path from the source, or -1 for the source and unreached vertices
+     */
+    public int parent(int v) {
+        return parents[v];
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - whether the BFS reached v
+     */
+    public boolean reached(int v) {
+        return distances[v] >= 0;
+    }
+
+    /**
+     * @return - number of vertices reached, including the source
+     */
+    public int numReached() {
+        return numReached;
+    }
+
+    /**
+     * @return - average separation, eccentricity and distance histogram of the source, without walking any tree
+     */
+    public SeparationStats separationStats() {
+        return new SeparationStats(levelSizes);
+    }
+
+    /**
+     * Backing distances array. Callers must not modify it
+     */
+    int[] distances() {
+        return distances;
+    }
+
+    /**
+     * Backing parents array. Callers must not modify it
+     */
+    int[] parents() {
+        return parents;
+    }
+
+    /**
+     * Shortest path from v back to the source, in the same order as GraphLib.getPath
+     *
+     * @param v - vertex id
+     * @return - vertex ids from v to the source, or an empty list if v wasn't reached
+     */
+    public List<Integer> path(int v) {
+        List<Integer> path = new ArrayList<>();
+        if (!reached(v)) return path;
+
+        // follow the parents back to the source
+        for (int current = v; current != -1; current = parents[current]) {
+            path.add(current);
+        }
+        return path;
+    }
+
+    /**
+     * Rough number of bytes held by the result
+     */
+    public long estimatedBytes() {
+        return 32 + 2 * (16 + 4L * distances.length);
+    }
+
+    /**
+     * @return - number of vertices at each distance, from one pass over the distances
+     */
+    private static int[] countLevels(int[] distances) {
+        int[] sizes = new int[16];
+        for (int distance : distances) {
+            if (distance < 0) continue;
+            if (distance >= sizes.length) sizes = Arrays.copyOf(sizes, Math.max(distance + 1, sizes.length * 2));
+            sizes[distance]++;
+        }
+        return sizes;
+    }
+}
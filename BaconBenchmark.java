@@ -0,0 +1,195 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Repeatable timings for the expensive parts of the game: reading the files, building each kind of graph, BFS, path
+ * lookup and the separation ranking. Runs on synthetic datasets from SyntheticBaconData so the sizes can be pushed
+ * well past the real files. Each benchmark gets warmup runs first so the JIT has settled, then reports the average,
+ * best and worst time of the measured runs; every result goes into a sink so nothing can be optimized away
+ *
+ * Usage: java BaconBenchmark [-warmup n] [-iterations n] [-sources n] [actors ...]
+ * e.g. java -Xmx8g BaconBenchmark 10000 100000 1000000
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class BaconBenchmark {
+
+    /**
+     * One benchmarked operation
+     */
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    private static int warmup = 3;
+    private static int iterations = 5;
+    private static int separationSources = 64;   // sources for the separation benchmarks; every actor would take hours at 1M
+    private static int pathLookups = 1000;
+
+    private static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+
+        // reading the options, then the dataset sizes
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "-iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "-sources" -> separationSources = Integer.parseInt(args[++i]);
+                default -> sizes.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (sizes.isEmpty()) sizes = List.of(10000, 100000);
+
+        System.out.printf("%-34s %10s %12s %12s %12s%n", "Benchmark", "Actors", "Avg ms/op", "Min ms/op", "Max ms/op");
+        for (int size : sizes) {
+            File directory = Files.createTempDirectory("bacon-benchmark").toFile();
+            directory.deleteOnExit();
+
+            SyntheticBaconData.generate(directory.getPath(), size, size / 2, 1);
+            runAll(directory.getPath(), size);
+
+            for (File file : Objects.requireNonNull(directory.listFiles())) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Runs every benchmark against one dataset
+     */
+    private static void runAll(String directory, int size) throws Exception {
+        String actors = directory + "/actors.txt";
+        String movies = directory + "/movies.txt";
+        String movieActors = directory + "/movie-actors.txt";
+        int threads = Runtime.getRuntime().availableProcessors();
+        BaconGraph bacon = new BaconGraph();
+
+        // reading the files
+        Map<Integer, String> actorMap = bacon.createActorMap(actors);
+        Map<Integer, String> movieMap = bacon.createMovieMap(movies);
+        measure("read actors", size, () -> bacon.createActorMap(actors));
+        measure("read movie-actors", size, () -> bacon.createMovieActorMap(actorMap, movieMap, movieActors));
+        measure("read movie-actors (parallel)", size, () -> bacon.createMovieActorMap(actorMap, movieMap, movieActors, threads));
+
+        // building the graphs
+        Map<String, List<String>> movieActorMap = bacon.createMovieActorMap(actorMap, movieMap, movieActors, threads);
+        measure("build adjacency map graph", size, () -> bacon.createBaconGraph(actorMap, movieActorMap));
+        measure("build compact graph", size, () -> bacon.createCompactBaconGraph(actorMap, movieActorMap));
+        measure("build compact graph (parallel)", size, () -> bacon.createCompactBaconGraph(actorMap, movieActorMap, threads));
+        measure("read + build compact (streamed)", size, () -> bacon.createCompactBaconGraph(actors, movies, movieActors));
+        measure("build bipartite graph", size, () -> bacon.createBipartiteBaconGraph(actorMap, movieActorMap));
+
+        // BFS from Kevin Bacon
+        CompactBaconGraph graph = bacon.createCompactBaconGraph(actorMap, movieActorMap);
+        String center = "Kevin Bacon";
+        measure("bfs", size, () -> GraphLib.bfs(graph, center));
+        measure("hybrid bfs", size, () -> GraphLib.hybridBFS(graph, center));
+
+        // path lookups from random actors
+        Graph<String, List<String>> tree = GraphLib.toPathTree(graph, GraphLib.hybridBFS(graph, center));
+        String[] reached = randomActors(tree, pathLookups);
+        measure("path tree lookups x" + reached.length, size, () -> {
+            int total = 0;
+            for (String actor : reached) total += GraphLib.getPath(tree, actor).size();
+            return total;
+        });
+        measure("bidirectional paths x" + reached.length, size, () -> {
+            int total = 0;
+            for (String actor : reached) total += GraphLib.shortestPath(graph, actor, center).length();
+            return total;
+        });
+
+        // Bacon numbers of the same actors from 64 centers at once
+        int[] centers = new int[MultiSourceBFS.WIDTH];
+        int[] targets = new int[reached.length];
+        for (int i = 0; i < centers.length; i++) centers[i] = graph.indexOf(reached[i % reached.length]);
+        for (int j = 0; j < targets.length; j++) targets[j] = graph.indexOf(reached[j]);
+        measure("bacon numbers " + centers.length + "x" + targets.length + " (ms-bfs)", size, () -> MultiSourceBFS.distances(graph, centers, targets));
+
+        // the same Bacon numbers from a distance index, once it's built
+        measure("distance index", size, () -> new DistanceIndex(graph, null));
+        DistanceIndex index = new DistanceIndex(graph, null);
+        measure("bacon numbers " + centers.length + "x" + targets.length + " (index)", size, () -> {
+            long total = 0;
+            for (int c : centers) for (int t : targets) total += index.distance(c, t);
+            return total;
+        });
+
+        // connected components, once for the whole graph
+        measure("component index", size, () -> new ComponentIndex(graph));
+        ComponentIndex components = new ComponentIndex(graph);
+
+        // separation ranking, restricted to a sample of the connected actors
+        String[] sample = randomActors(tree, separationSources);
+        Graph<String, List<String>> sampleFilter = new AdjacencyMapGraph<>();
+        for (String actor : sample) sampleFilter.insertVertex(actor);
+
+        AverageSeparationCalc calc = new AverageSeparationCalc();
+        measure("average separation of center", size, () -> GraphLib.averageSeparation(tree, center));
+        measure("in-degree ranking (full sort)", size, () -> GraphLib.verticesByInDegree(graph));
+        measure("in-degree top 25", size, () -> GraphLib.topK(graph.vertices(), graph::inDegree, 25, true));
+        measure("separation ranking x" + sample.length, size, () -> rank(calc.createAverageSeparationMap(graph, sampleFilter, actorMap)));
+        measure("separation ranking (parallel) x" + sample.length, size,
+                () -> rank(calc.createAverageSeparationMap(graph, sampleFilter, threads, null)));
+
+        BFSResult centerBFS = GraphLib.hybridBFS(graph, center);
+        measure("separation estimate x" + separationSources, size,
+                () -> new SeparationEstimate(graph, centerBFS, separationSources, 42, threads, null).top(25));
+        measure("separation top 25 (pruned)", size, () -> calc.lowestAverageSeparations(graph, components, center, 25, threads, null));
+    }
+
+    /**
+     * Times the operation: warmup runs first, then the measured runs
+     */
+    private static void measure(String name, int size, Operation operation) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            consume(operation.run());
+        }
+
+        long total = 0, best = Long.MAX_VALUE, worst = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            consume(operation.run());
+            long elapsed = System.nanoTime() - start;
+
+            total += elapsed;
+            best = Math.min(best, elapsed);
+            worst = Math.max(worst, elapsed);
+        }
+
+        System.out.printf("%-34s %10d %12.3f %12.3f %12.3f%n", name, size, total / 1e6 / iterations, best / 1e6, worst / 1e6);
+    }
+
+    /**
+     * Keeps a result alive so the JIT can't drop the work that produced it
+     */
+    private static void consume(Object result) {
+        sink += System.identityHashCode(result);
+    }
+
+    /**
+     * Picks the 25 actors of a separation map with the lowest average separation, like the a command does
+     */
+    private static List<String> rank(Map<String, Double> separations) {
+        return GraphLib.topK(separations.keySet(), separations::get, 25, false);
+    }
+
+    /**
+     * Picks actors from the path tree with a fixed seed, so every run looks up the same actors
+     */
+    private static String[] randomActors(Graph<String, List<String>> tree, int count) {
+        List<String> vertices = new ArrayList<>();
+        for (String vertex : tree.vertices()) vertices.add(vertex);
+        Collections.sort(vertices);
+
+        Random random = new Random(42);
+        String[] actors = new String[Math.min(count, vertices.size())];
+        for (int i = 0; i < actors.length; i++) {
+            actors[i] = vertices.get(random.nextInt(vertices.size()));
+        }
+        return actors;
+    }
+}
@@ -1,99 +1,78 @@
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class BaconGraph {
 
+    private long malformedLines;    // malformed lines skipped across every file read so far
+
     /**
      * Given a file of IDs to actors, create a map linking the two
      *
      * @param pathname - name of the file to read
-     * @return - a map of IDs to actor names
+     * @return - a map of IDs to actor names (a view of createActorTable's table)
      * @throws Exception
      */
     public Map<Integer, String> createActorMap(String pathname) throws Exception {
-        // initializing map of IDs to actors
-        Map<Integer, String> actorMap = new HashMap<>();
-        BufferedReader input;
-
-        // attempt to open the file
-        try {
-            input = new BufferedReader(new FileReader(pathname));
-        } catch (FileNotFoundException e){
-            System.err.println("Cannot open file");
-            return actorMap;
-        }
-
-        try {
-
-            // read through text file and add each ID mapped to the actor to the map
-            String line;
-            while ((line = input.readLine()) != null){
-                String[] items = line.split("\\|");
-                actorMap.put(Integer.parseInt(items[0]), items[1]);
-            }
-
-        } catch (Exception e){
-            System.out.println(e);
-        } finally {
-
-            // close the buffered reader
-            try {
-                input.close();
-            } catch(Exception e) {
-                System.out.println(e);
-            }
-        }
-
-        return actorMap;
+        return createActorTable(pathname).asMap();
     }
 
     /**
      * Given a file of IDs to movies, create a map linking the two (pretty much the same code as createActorMap)
      *
      * @param pathname - file to read
-     * @return - a map of IDs to movies
+     * @return - a map of IDs to movies (a view of createMovieTable's table)
      * @throws Exception
      */
     public Map<Integer, String> createMovieMap(String pathname) throws Exception{
-        // initializing the map of IDs to movies
-        Map<Integer, String> movieMap = new HashMap<>();
-        BufferedReader input;
+        return createMovieTable(pathname).asMap();
+    }
 
-        // attempt to open the file
-        try {
-            input = new BufferedReader(new FileReader(pathname));
-        } catch (FileNotFoundException e){
-            System.err.println("Cannot open file");
-            return movieMap;
-        }
+    /**
+     * Given a file of IDs to actors, create an unboxed table linking the two
+     *
+     * @param pathname - name of the file to read
+     * @return - a table of IDs to actor names
+     */
+    public IntStringMap createActorTable(String pathname) {
+        Metrics.Stage stage = Metrics.stage("read actors");
 
-        try {
+        // initializing table of IDs to actors
+        IntStringMap actorTable = new IntStringMap();
 
-            // read through text file and add each ID mapped to the movie to the map
-            String line;
-            while ((line = input.readLine()) != null){
-                String[] items = line.split("\\|");
-                movieMap.put(Integer.parseInt(items[0]), items[1]);
-            }
+        // stream through the file and add each ID mapped to the actor to the table
+        readIdNames(pathname, (id, bytes, start, length) -> actorTable.put(id, PipeFileReader.decode(bytes, start, length)));
 
-        } catch (Exception e){
-            System.out.println(e);
-        } finally {
+        Metrics.end(stage, actorTable.size(), 0);
+        return actorTable;
+    }
 
-            // close the buffered reader
-            try {
-                input.close();
-            } catch(Exception e) {
-                System.out.println(e);
-            }
-        }
+    /**
+     * Given a file of IDs to movies, create an unboxed table linking the two
+     *
+     * @param pathname - file to read
+     * @return - a table of IDs to movies
+     */
+    public IntStringMap createMovieTable(String pathname) {
+        Metrics.Stage stage = Metrics.stage("read movies");
+
+        // initializing the table of IDs to movies
+        IntStringMap movieTable = new IntStringMap();
+
+        // stream through the file and add each ID mapped to the movie to the table
+        readIdNames(pathname, (id, bytes, start, length) -> movieTable.put(id, PipeFileReader.decode(bytes, start, length)));
 
-        return movieMap;
+        Metrics.end(stage, movieTable.size(), 0);
+        return movieTable;
     }
 
     /**
@@ -106,102 +85,468 @@ public class BaconGraph {
      * @return - map of movies to a list of actors
      */
     public Map<String, List<String>> createMovieActorMap(Map<Integer, String> actorMap, Map<Integer, String> movieMap, String pathname) throws Exception{
+        Metrics.Stage stage = Metrics.stage("read movie-actors");
+
         // initialize a map of movies to actors
         Map<String, List<String>> movieActormap = new HashMap<>();
-        BufferedReader input;
 
-        // if either of the given maps are empty, return an empty movie-actor map
-        if (actorMap.isEmpty() || movieMap.isEmpty()){
-            return movieActormap;
-        }
-
-        // attempt to initialize the reader
         try {
-            input = new BufferedReader(new FileReader(pathname));
-        } catch (FileNotFoundException e){
-            System.err.println("Cannot open file");
+            // if either of the given maps are empty, return an empty movie-actor map
+            if (actorMap.isEmpty() || movieMap.isEmpty()){
+                return movieActormap;
+            }
+
+            // look ids up in unboxed tables (free for maps from createActorMap/createMovieMap, a copy for any other map)
+            IntStringMap actorTable = IntStringMap.from(actorMap);
+            IntStringMap movieTable = IntStringMap.from(movieMap);
+
+            // for each line, look the movie and actor up once and add the actor to the movie's list
+            readIdPairs(pathname, (movieID, actorID) ->
+                    movieActormap.computeIfAbsent(movieTable.get(movieID), movie -> new ArrayList<>()).add(actorTable.get(actorID)));
+
             return movieActormap;
+        } finally {
+            Metrics.end(stage, movieActormap.size(), castEntries(movieActormap));
         }
+    }
 
-        try {
+    /**
+     * Same map as createMovieActorMap, but the file is split into byte ranges on line boundaries that are parsed by
+     * separate threads. Each thread builds its own movie -> cast lists, and the lists are merged in file order, so the
+     * map (including the order of every cast list and the order movies were first seen) matches the single-threaded
+     * result exactly
+     *
+     * @param actorMap - map of IDs to actors
+     * @param movieMap - map of IDs to movies
+     * @param pathname - file to read
+     * @param threads - number of threads to parse with (1 falls back to createMovieActorMap)
+     * @return - map of movies to a list of actors
+     */
+    public Map<String, List<String>> createMovieActorMap(Map<Integer, String> actorMap, Map<Integer, String> movieMap, String pathname, int threads) throws Exception{
+        if (threads <= 1) return createMovieActorMap(actorMap, movieMap, pathname);
+        Metrics.Stage stage = Metrics.stage("read movie-actors (parallel)");
 
-            // while there is a line to read...
-            String line;
-            while ((line = input.readLine()) != null) {
-                String[] items = line.split("\\|");
+        // initialize a map of movies to actors
+        Map<String, List<String>> movieActormap = new HashMap<>();
 
-                // if the map doesn't already contain the movie...
-                if (!movieActormap.containsKey(movieMap.get(Integer.parseInt(items[0])))){
+        try {
+            // if either of the given maps are empty, return an empty movie-actor map
+            if (actorMap.isEmpty() || movieMap.isEmpty()){
+                return movieActormap;
+            }
 
-                    // put that movie into the map with an empty array list
-                    movieActormap.put(movieMap.get(Integer.parseInt(items[0])), new ArrayList<String>());
-                }
+            // split the file into one range per thread
+            long[] bounds;
+            try {
+                bounds = PipeFileReader.splitLines(pathname, threads);
+            } catch (IOException e) {
+                System.err.println("Cannot open file " + pathname + ": " + e);
+                return movieActormap;
+            }
 
-                // add the actor to the list of actors associated with the movie
-                movieActormap.get(movieMap.get(Integer.parseInt(items[0]))).add(actorMap.get(Integer.parseInt(items[1])));
+            // unboxed tables are only read from here on, so every thread can share them
+            IntStringMap actorTable = IntStringMap.from(actorMap);
+            IntStringMap movieTable = IntStringMap.from(movieMap);
 
+            // every range builds its own movie -> cast lists, keeping movies in the order it first saw them
+            List<Callable<Long>> tasks = new ArrayList<>();
+            List<Map<String, List<String>>> partials = new ArrayList<>();
+            for (int i = 0; i < bounds.length - 1; i++) {
+                Map<String, List<String>> partial = new LinkedHashMap<>();
+                long from = bounds[i], to = bounds[i + 1];
+
+                partials.add(partial);
+                tasks.add(() -> PipeFileReader.readIdPairs(pathname, from, to, (movieID, actorID) ->
+                        partial.computeIfAbsent(movieTable.get(movieID), movie -> new ArrayList<>()).add(actorTable.get(actorID))));
             }
-        } catch (Exception e){
-            System.out.println(e);
-        } finally {
 
-            // close the buffered reader
+            // parse the ranges concurrently and add up the skipped lines
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+            long skipped = 0;
             try {
-                input.close();
-            } catch(Exception e) {
-                System.out.println(e);
+                for (Future<Long> future : pool.invokeAll(tasks)) {
+                    skipped += future.get();
+                }
+            } catch (ExecutionException e) {
+                System.err.println("Cannot read file " + pathname + ": " + e.getCause());
+                return movieActormap;
+            } finally {
+                pool.shutdown();
             }
+            reportMalformed(pathname, skipped);
+
+            // merge the ranges in file order, so movies are inserted and casts appended exactly as a single pass would
+            // (inserting through computeIfAbsent too, which places colliding keys differently than put)
+            for (Map<String, List<String>> partial : partials) {
+                for (Map.Entry<String, List<String>> entry : partial.entrySet()) {
+                    List<String> actorList = movieActormap.computeIfAbsent(entry.getKey(), movie -> entry.getValue());
+                    if (actorList != entry.getValue()) actorList.addAll(entry.getValue());
+                }
+            }
+
+            return movieActormap;
+        } finally {
+            Metrics.end(stage, movieActormap.size(), castEntries(movieActormap));
         }
+    }
 
-        return movieActormap;
+    /**
+     * @return - the number of malformed lines skipped across every file this object has read
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * Streams an "id|name" file through the handler, reporting skipped lines and files that can't be read
+     */
+    private void readIdNames(String pathname, PipeFileReader.IdNameHandler handler) {
+        try {
+            reportMalformed(pathname, PipeFileReader.readIdNames(pathname, handler));
+        } catch (IOException e) {
+            System.err.println("Cannot open file " + pathname + ": " + e);
+        }
+    }
+
+    /**
+     * Streams an "id|id" file through the handler, reporting skipped lines and files that can't be read
+     */
+    private void readIdPairs(String pathname, PipeFileReader.IdPairHandler handler) {
+        try {
+            reportMalformed(pathname, PipeFileReader.readIdPairs(pathname, handler));
+        } catch (IOException e) {
+            System.err.println("Cannot open file " + pathname + ": " + e);
+        }
+    }
+
+    /**
+     * Adds the skipped lines to the running total and says how many there were
+     */
+    private void reportMalformed(String pathname, long skipped) {
+        malformedLines += skipped;
+        if (skipped > 0) System.err.println("Skipped " + skipped + " malformed lines in " + pathname);
     }
 
     /**
      * Given a map of IDs to actors, and a map of movies to a list of actors, create a graph using the actors as
-     * vertices and shared movies as edges between actors
+     * vertices and shared movies as edges between actors. Every movie is stored once by id and each edge's label is a
+     * read-only view of its slice of one shared array of movie ids, so titles are only looked up when a label is read
      *
      * @param actorMap - map of IDs to actors
      * @param movieActorMap - map of movies to a list of actors
      * @return - a graph connecting each actor
      */
     public Graph<String, List<String>> createBaconGraph(Map<Integer, String> actorMap, Map<String, List<String>> movieActorMap){
-        // initialize the graph
+        return createBaconGraph(actorMap, movieActorMap, 1);
+    }
+
+    /**
+     * Same graph as createBaconGraph, with the co-star pairs expanded and sorted by several threads before they are
+     * inserted into the map
+     *
+     * @param actorMap - map of IDs to actors
+     * @param movieActorMap - map of movies to a list of actors
+     * @param threads - number of threads to expand and sort the pairs with
+     * @return - a graph connecting each actor
+     */
+    public Graph<String, List<String>> createBaconGraph(Map<Integer, String> actorMap, Map<String, List<String>> movieActorMap, int threads){
+        Metrics.Stage stage = Metrics.stage("build adjacency map graph");
+        CompactGraphBuilder builder = addCasts(actorMap, movieActorMap);
+
+        // initialize the graph and create a vertex for each actor
         Graph<String, List<String>> baconGraph = new AdjacencyMapGraph<>();
+        for (int v = 0; v < builder.numActors(); v++){
+            baconGraph.insertVertex(builder.actor(v));
+        }
 
-        // create an iterable key set for the actor map
-        Iterable<Integer> keySet1 = actorMap.keySet();
+        // expand the co-star pairs and their movies the same way the compact graph does, and connect each pair once
+        // with the label view both directions share, without packing the pairs into a compact graph first
+        builder.forEachEdge(threads, (lower, higher, movies) -> baconGraph.insertUndirected(builder.actor(lower), builder.actor(higher), movies));
 
-        // for each key in the key set create a new vertex in the graph for the key's actor
-        for (Integer ID : keySet1){
-            baconGraph.insertVertex(actorMap.get(ID));
+        Metrics.end(stage, baconGraph.numVertices(), baconGraph.numEdges());
+        return baconGraph;
+    }
+
+    /**
+     * Given a map of IDs to actors, and a map of movies to a list of actors, create the same actor graph as
+     * createBaconGraph but packed into an immutable CompactBaconGraph (int arrays instead of a map and a list per edge)
+     *
+     * @param actorMap - map of IDs to actors
+     * @param movieActorMap - map of movies to a list of actors
+     * @return - a compact graph connecting each actor
+     */
+    public CompactBaconGraph createCompactBaconGraph(Map<Integer, String> actorMap, Map<String, List<String>> movieActorMap){
+        return createCompactBaconGraph(actorMap, movieActorMap, 1);
+    }
+
+    /**
+     * Same graph as createCompactBaconGraph, with the co-star pairs expanded, sorted and packed by several threads. The
+     * graph is the same for every number of threads
+     *
+     * @param actorMap - map of IDs to actors
+     * @param movieActorMap - map of movies to a list of actors
+     * @param threads - number of threads to build with
+     * @return - a compact graph connecting each actor
+     */
+    public CompactBaconGraph createCompactBaconGraph(Map<Integer, String> actorMap, Map<String, List<String>> movieActorMap, int threads){
+        Metrics.Stage stage = Metrics.stage(threads > 1 ? "build compact graph (parallel)" : "build compact graph");
+
+        CompactBaconGraph baconGraph = packCasts(actorMap, movieActorMap, threads);
+        Metrics.end(stage, baconGraph.numVertices(), baconGraph.numEdges());
+        return baconGraph;
+    }
+
+    /**
+     * Given the three files, create the compact graph in one streaming pass over movie-actors.txt: each movie's cast is
+     * added to the builder as soon as its entries end, so the movie -> cast map createMovieActorMap builds is never held
+     * and peak memory is about the size of the finished graph. Movies are kept apart by id rather than merged by title
+     *
+     * @param actorsPathname - "id|name" actors file
+     * @param moviesPathname - "id|title" movies file
+     * @param movieActorsPathname - "movie id|actor id" cast entries, grouped by movie
+     * @return - a compact graph connecting each actor
+     */
+    public CompactBaconGraph createCompactBaconGraph(String actorsPathname, String moviesPathname, String movieActorsPathname){
+        return createCompactBaconGraph(actorsPathname, moviesPathname, movieActorsPathname, 1);
+    }
+
+    /**
+     * Same graph as createCompactBaconGraph from the files, with the streamed casts expanded, sorted and packed by
+     * several threads
+     *
+     * @param actorsPathname - "id|name" actors file
+     * @param moviesPathname - "id|title" movies file
+     * @param movieActorsPathname - "movie id|actor id" cast entries, grouped by movie
+     * @param threads - number of threads to build with
+     * @return - a compact graph connecting each actor
+     */
+    public CompactBaconGraph createCompactBaconGraph(String actorsPathname, String moviesPathname, String movieActorsPathname, int threads){
+        IntStringMap actorTable = createActorTable(actorsPathname);
+        IntStringMap movieTable = createMovieTable(moviesPathname);
+        Metrics.Stage stage = Metrics.stage("build compact graph (streamed)");
+
+        CompactGraphBuilder builder = streamCasts(actorTable, movieTable, movieActorsPathname, null);
+        CompactBaconGraph baconGraph = builder.build(threads);
+        Metrics.end(stage, baconGraph.numVertices(), baconGraph.numEdges());
+        return baconGraph;
+    }
+
+    /**
+     * Streams movie-actors.txt into a new CompactGraphBuilder through a CastStream, reading it again into two int
+     * arrays and grouping it by movie if it turns out not to be grouped
+     *
+     * @param actorTable - actor ids to names
+     * @param movieTable - movie ids to titles
+     * @param movieActorsPathname - "movie id|actor id" cast entries
+     * @param listener - told about every cast added (may be null); after a regroup it's told about every cast again
+     * @return - the builder with every actor and cast added
+     */
+    private CompactGraphBuilder streamCasts(IntStringMap actorTable, IntStringMap movieTable, String movieActorsPathname,
+                                            CastStream.CastListener listener){
+        CompactGraphBuilder builder = new CompactGraphBuilder();
+        CastStream casts = new CastStream(builder, actorTable, movieTable, listener);
+        readIdPairs(movieActorsPathname, casts);
+        casts.finish();
+
+        // a file that isn't grouped by movie is read again into two int arrays and grouped before streaming it
+        if (!casts.isGrouped()) {
+            int[][] entries = {new int[1024], new int[1024]};
+            int[] size = {0};
+            try {
+                PipeFileReader.readIdPairs(movieActorsPathname, (movieID, actorID) -> {
+                    if (size[0] == entries[0].length) {
+                        entries[0] = Arrays.copyOf(entries[0], size[0] * 2);
+                        entries[1] = Arrays.copyOf(entries[1], size[0] * 2);
+                    }
+                    entries[0][size[0]] = movieID;
+                    entries[1][size[0]++] = actorID;
+                });
+            } catch (IOException e) {
+                System.err.println("Cannot open file " + movieActorsPathname + ": " + e);
+            }
+
+            builder = new CompactGraphBuilder();
+            casts = new CastStream(builder, actorTable, movieTable, listener);
+            CastStream.groupByMovie(entries[0], entries[1], size[0], casts);
+            casts.finish();
         }
+        if (casts.unknown() > 0) System.err.println("Skipped " + casts.unknown() + " cast entries with unknown ids in " + movieActorsPathname);
+        return builder;
+    }
+
+    /**
+     * Adds every actor, in id order, and every cast to a CompactGraphBuilder and builds the graph
+     *
+     * @param actorMap - map of IDs to actors
+     * @param movieActorMap - map of movies to a list of actors
+     * @param threads - number of threads to build with
+     * @return - the packed graph
+     */
+    private static CompactBaconGraph packCasts(Map<Integer, String> actorMap, Map<String, List<String>> movieActorMap, int threads){
+        return addCasts(actorMap, movieActorMap).build(threads);
+    }
 
-        // create an iterable key set for the movie-actor map
-        Iterable<String> keySet2 = movieActorMap.keySet();
+    /**
+     * Adds every actor, in id order, and every cast to a new CompactGraphBuilder
+     *
+     * @param actorMap - map of IDs to actors
+     * @param movieActorMap - map of movies to a list of actors
+     * @return - the builder, ready to build or hand out its edges
+     */
+    private static CompactGraphBuilder addCasts(Map<Integer, String> actorMap, Map<String, List<String>> movieActorMap){
+        // initialize the builder
+        CompactGraphBuilder builder = new CompactGraphBuilder();
 
-        // for each movie in the movie-actor map...
-        for (String movie : keySet2){
+        // add every actor as a vertex, in id order
+        IntStringMap.from(actorMap).forEach((ID, actor) -> builder.addActor(actor));
 
-            // get the list of actors appearing in the movie
+        // reusable buffer for the vertex ids of a cast
+        int[] cast = new int[16];
+
+        // for each movie in the movie-actor map...
+        for (String movie : movieActorMap.keySet()){
             List<String> actorList = movieActorMap.get(movie);
+            int movieID = builder.addMovie(movie);
 
-            // compare each actor in the list...
-            for (int i = 0; i < actorList.size() - 1; i++){
-                for (int j = i + 1; j < actorList.size(); j++){
+            // look up the vertex id of every actor in the movie, skipping actors with no name
+            if (cast.length < actorList.size()) cast = new int[actorList.size()];
+            int size = 0;
+            for (String actor : actorList){
+                if (actor != null) cast[size++] = builder.addActor(actor);
+            }
 
-                    // if the two actors don't already have an edge...
-                    if (!baconGraph.hasEdge(actorList.get(i), actorList.get(j))){
+            // connect every pair of actors in the movie
+            builder.addCast(movieID, cast, size);
+        }
 
-                        // create an edge with an empty list
-                        baconGraph.insertUndirected(actorList.get(i), actorList.get(j), new ArrayList<>());
-                    }
+        return builder;
+    }
 
-                    // add movie to the edge
-                    baconGraph.getLabel(actorList.get(i), actorList.get(j)).add(movie);
-                }
+    /**
+     * Given a map of IDs to actors, and a map of movies to a list of actors, create a graph that keeps actors and
+     * movies as separate vertices instead of connecting every pair of co-stars. Takes time and memory linear in the
+     * total size of the cast lists, while still answering the same neighbor and label queries as createBaconGraph
+     *
+     * @param actorMap - map of IDs to actors
+     * @param movieActorMap - map of movies to a list of actors
+     * @return - a bipartite graph of actors and movies
+     */
+    public BipartiteBaconGraph createBipartiteBaconGraph(Map<Integer, String> actorMap, Map<String, List<String>> movieActorMap){
+        Metrics.Stage stage = Metrics.stage("build bipartite graph");
+
+        // intern every actor, in id order
+        NameDictionary actors = new NameDictionary(actorMap.size());
+        IntStringMap.from(actorMap).forEach((ID, actor) -> actors.add(actor));
+
+        // count the total cast size so the cast array is only allocated once
+        int totalCast = 0;
+        for (List<String> actorList : movieActorMap.values()){
+            totalCast += actorList.size();
+        }
+
+        String[] movies = new String[movieActorMap.size()];
+        int[] movieOffsets = new int[movies.length + 1];
+        int[] movieActors = new int[totalCast];
+        int movieID = 0, size = 0;
+
+        // for each movie in the movie-actor map, append its cast, skipping actors with no name
+        for (String movie : movieActorMap.keySet()){
+            movies[movieID] = movie;
+            for (String actor : movieActorMap.get(movie)){
+                if (actor != null) movieActors[size++] = actors.add(actor);
             }
+            movieOffsets[++movieID] = size;
         }
 
+        BipartiteBaconGraph baconGraph = new BipartiteBaconGraph(actors, movies, movieOffsets, Arrays.copyOf(movieActors, size));
+        Metrics.end(stage, baconGraph.numVertices(), size);
+        return baconGraph;
+    }
+
+    /**
+     * Wraps a compact graph so new actors, movies and casts can be added to it without rebuilding it. The files the
+     * graph was built from are streamed again so the live graph knows the cast of every movie by its id
+     *
+     * @param baconGraph - graph built from the files (or loaded from its snapshot)
+     * @param actorsPathname - "id|name" actors file the graph was built from
+     * @param moviesPathname - "id|title" movies file the graph was built from
+     * @param movieActorsPathname - "movie id|actor id" cast entries the graph was built from
+     * @return - a live graph starting from baconGraph
+     */
+    public LiveBaconGraph createLiveBaconGraph(CompactBaconGraph baconGraph, String actorsPathname, String moviesPathname,
+                                               String movieActorsPathname){
+        IntStringMap actorTable = createActorTable(actorsPathname);
+        IntStringMap movieTable = createMovieTable(moviesPathname);
+
+        LiveBaconGraph liveGraph = new LiveBaconGraph(baconGraph, actorTable, movieTable);
+        streamCasts(actorTable, movieTable, movieActorsPathname, liveGraph);
+        return liveGraph;
+    }
+
+    /**
+     * Applies delta files, in the same formats as actors.txt, movies.txt and movie-actors.txt, to a live graph. The
+     * graph is spliced rather than rebuilt, and its BFS cache and separation index are repaired rather than recomputed
+     *
+     * @param liveGraph - the graph to add to
+     * @param actorsPathname - new "id|name" actors, or null for none
+     * @param moviesPathname - new "id|title" movies, or null for none
+     * @param movieActorsPathname - new "movie id|actor id" cast entries, or null for none
+     * @return - the updated graph
+     */
+    public CompactBaconGraph applyDelta(LiveBaconGraph liveGraph, String actorsPathname, String moviesPathname, String movieActorsPathname){
+        Metrics.Stage stage = Metrics.stage("apply delta");
+        if (actorsPathname != null) {
+            readIdNames(actorsPathname, (ID, bytes, start, length) -> liveGraph.addActor(ID, PipeFileReader.decode(bytes, start, length)));
+        }
+        if (moviesPathname != null) {
+            readIdNames(moviesPathname, (ID, bytes, start, length) -> liveGraph.addMovie(ID, PipeFileReader.decode(bytes, start, length)));
+        }
+
+        // cast entries naming an actor or movie that was never added can't be placed
+        if (movieActorsPathname != null) {
+            long[] unknown = new long[1];
+            readIdPairs(movieActorsPathname, (movieID, actorID) -> {
+                if (!liveGraph.addCastMember(movieID, actorID)) unknown[0]++;
+            });
+            if (unknown[0] > 0) System.err.println("Skipped " + unknown[0] + " cast entries with unknown ids in " + movieActorsPathname);
+        }
+
+        CompactBaconGraph baconGraph = liveGraph.commit();
+        Metrics.end(stage, baconGraph.numVertices(), baconGraph.numEdges());
+        return baconGraph;
+    }
+
+    /**
+     * @return - total length of every cast list, for the metrics
+     */
+    private static long castEntries(Map<String, List<String>> movieActorMap) {
+        long entries = 0;
+        for (List<String> actorList : movieActorMap.values()) entries += actorList.size();
+        return entries;
+    }
+
+    /**
+     * Saves a finished compact graph as a binary snapshot that loadSnapshot can map back in without re-parsing
+     *
+     * @param baconGraph - the graph to save
+     * @param pathname - file to write
+     * @throws IOException - if the file can't be written
+     */
+    public void writeSnapshot(CompactBaconGraph baconGraph, String pathname) throws IOException {
+        GraphSnapshot.write(baconGraph, pathname);
+    }
+
+    /**
+     * Maps a snapshot written by writeSnapshot back into a compact graph
+     *
+     * @param pathname - file to read
+     * @return - the saved graph
+     * @throws IOException - if the file can't be read or isn't a snapshot
+     */
+    public CompactBaconGraph loadSnapshot(String pathname) throws IOException {
+        Metrics.Stage stage = Metrics.stage("load snapshot");
+        CompactBaconGraph baconGraph = GraphSnapshot.load(pathname);
+        Metrics.end(stage, baconGraph.numVertices(), baconGraph.numEdges());
         return baconGraph;
     }
-}
\ No newline at end of file
+}
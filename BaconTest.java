@@ -1,11 +1,28 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
- * Testing out the Kevin Bacon graph creation on the test samples
+ * Testing out the Kevin Bacon graph creation on the test samples, then checking the faster and incremental code
+ * against computing the same thing from scratch on synthetic data; a check that fails throws an AssertionError
  *
  * @author Mason Childers, CS10, 23W
  */
 public class BaconTest {
+
+    /**
+     * A check run against one synthetic dataset
+     */
+    private interface DatasetCheck {
+        /**
+         * @param directory - directory holding actors.txt, movies.txt and movie-actors.txt; files written here are
+         *                  deleted with it
+         * @param graph - the compact graph streamed from the files
+         */
+        void run(Path directory, CompactBaconGraph graph) throws Exception;
+    }
+
     public static void main(String[] args) throws Exception {
         BaconGraph bacon = new BaconGraph();
         AverageSeparationCalc calc = new AverageSeparationCalc();
@@ -30,6 +47,18 @@ public class BaconTest {
 
         System.out.println("----------");
 
+        CompactBaconGraph compactGraph = bacon.createCompactBaconGraph(actorMap, movieActorMap);
+        System.out.println(compactGraph);
+        System.out.println(compactGraph.numVertices() + " actors, " + compactGraph.numEdges() + " edges, about " + compactGraph.estimatedBytes() + " bytes");
+        System.out.println(GraphLib.getPath(GraphLib.bfs(compactGraph, "Kevin Bacon"), "Dartmouth (Earl thereof)"));
+
+        BipartiteBaconGraph bipartiteGraph = bacon.createBipartiteBaconGraph(actorMap, movieActorMap);
+        System.out.println(bipartiteGraph);
+        System.out.println(bipartiteGraph.numVertices() + " actors, " + bipartiteGraph.numMovies() + " movies, about " + bipartiteGraph.estimatedBytes() + " bytes");
+        System.out.println(GraphLib.getPath(bipartiteGraph.bfs("Kevin Bacon"), "Dartmouth (Earl thereof)"));
+
+        System.out.println("----------");
+
         Graph<String, List<String>> bfs = GraphLib.bfs(baconGraph, "Kevin Bacon");
         System.out.println(bfs);
 
@@ -49,10 +78,15 @@ public class BaconTest {
         Set<String> missingVertices = GraphLib.missingVertices(baconGraph, bfs);
         System.out.println(missingVertices);
 
+        ComponentIndex components = new ComponentIndex(baconGraph);
+        System.out.println(components.unreachable("Kevin Bacon"));
+        System.out.println(components.numComponents() + " components; Kevin Bacon's has " + components.componentSize("Kevin Bacon") + " actors");
+
         System.out.println("----------");
 
         double averageSeparation = GraphLib.averageSeparation(bfs, "Kevin Bacon");
         System.out.println(averageSeparation);
+        System.out.println(GraphLib.separationStats(bfs, "Kevin Bacon"));
 
         System.out.println("---------");
 
@@ -76,5 +110,273 @@ public class BaconTest {
         vertexList.sort(compare);
 
         System.out.println(vertexList);
+
+        System.out.println("----------");
+
+        withDataset(2000, 1000, 7, BaconTest::checkIncrementalUpdates);
+        withDataset(3000, 1500, 11, BaconTest::checkLowestSeparations);
+        withDataset(3000, 1500, 13, BaconTest::checkDistanceIndex);
+        withDataset(3000, 1500, 17, BaconTest::checkParallelBuild);
+        withDataset(3000, 1500, 19, BaconTest::checkBatchedBFS);
+    }
+
+    /**
+     * Generates a synthetic dataset in a new temporary directory, builds its compact graph and runs the check on it,
+     * then deletes the directory with everything the check wrote into it
+     */
+    private static void withDataset(int numActors, int numMovies, long seed, DatasetCheck check) throws Exception {
+        Path directory = Files.createTempDirectory("bacon-test");
+        try {
+            SyntheticBaconData.generate(directory.toString(), numActors, numMovies, seed);
+            CompactBaconGraph graph = new BaconGraph().createCompactBaconGraph(directory + "/actors.txt", directory + "/movies.txt", directory + "/movie-actors.txt");
+            check.run(directory, graph);
+        } finally {
+            // deepest files first, so every directory is empty by the time it's deleted
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Applies delta files to a live graph in two steps, then checks the graph, the cached BFS results, the components
+     * and the average separations against the same things computed from scratch on a graph rebuilt from every file.
+     * Some of the new movies share the title of an existing movie, which must stay a separate movie
+     */
+    private static void checkIncrementalUpdates(Path base, CompactBaconGraph graph) throws Exception {
+        BaconGraph bacon = new BaconGraph();
+        Random random = new Random(7);
+
+        // new actors, new movies (every third one titled like an existing movie), and cast entries for both
+        List<String> newActors = new ArrayList<>(), newMovies = new ArrayList<>(), newCasts = new ArrayList<>();
+        List<String> baseMovies = Files.readAllLines(base.resolve("movies.txt"));
+        for (int id = 2001; id <= 2050; id++) newActors.add(id + "|Newcomer " + id);
+        for (int id = 1001; id <= 1030; id++) {
+            newMovies.add(id + "|" + (id % 3 == 0 ? baseMovies.get(random.nextInt(baseMovies.size())).split("\\|")[1] : "New Movie " + id));
+        }
+        for (int i = 0; i < 300; i++) {
+            int movie = random.nextBoolean() ? 1 + random.nextInt(1030) : 1001 + random.nextInt(30);
+            int actor = random.nextBoolean() ? 1 + random.nextInt(2050) : 2001 + random.nextInt(50);
+            newCasts.add(movie + "|" + actor);
+        }
+
+        // the first delta has the new actors, movies and half the casts; the second the other half
+        Path first = Files.createDirectory(base.resolve("first")), second = Files.createDirectory(base.resolve("second"));
+        Files.write(first.resolve("actors.txt"), newActors);
+        Files.write(first.resolve("movies.txt"), newMovies);
+        Files.write(first.resolve("movie-actors.txt"), newCasts.subList(0, 150));
+        Files.write(second.resolve("movie-actors.txt"), newCasts.subList(150, 300));
+
+        // every file together, for the rebuild
+        Path all = Files.createDirectory(base.resolve("all"));
+        for (String name : new String[] {"actors.txt", "movies.txt", "movie-actors.txt"}) {
+            List<String> lines = new ArrayList<>(Files.readAllLines(base.resolve(name)));
+            for (Path delta : new Path[] {first, second}) {
+                if (Files.exists(delta.resolve(name))) lines.addAll(Files.readAllLines(delta.resolve(name)));
+            }
+            Files.write(all.resolve(name), lines);
+        }
+
+        // incremental: the live graph, with a cache, components and separations following it
+        String[] centers = {"Kevin Bacon", "Actor 1999", "Actor 500"};
+        BFSCache cache = new BFSCache(graph, Long.MAX_VALUE);
+        for (String center : centers) cache.get(center);
+        ComponentIndex components = new ComponentIndex(graph);
+        SeparationIndex separations = new SeparationIndex(graph, cache.get("Kevin Bacon"), 2, null);
+
+        LiveBaconGraph liveGraph = bacon.createLiveBaconGraph(graph, base + "/actors.txt", base + "/movies.txt", base + "/movie-actors.txt");
+        liveGraph.addListener(cache);
+        liveGraph.addListener(components);
+        liveGraph.addListener(separations);
+        bacon.applyDelta(liveGraph, first + "/actors.txt", first + "/movies.txt", first + "/movie-actors.txt");
+        CompactBaconGraph updated = bacon.applyDelta(liveGraph, null, null, second + "/movie-actors.txt");
+
+        // from scratch
+        CompactBaconGraph rebuilt = bacon.createCompactBaconGraph(all + "/actors.txt", all + "/movies.txt", all + "/movie-actors.txt");
+        ComponentIndex rebuiltComponents = new ComponentIndex(rebuilt);
+        SeparationIndex rebuiltSeparations = new SeparationIndex(rebuilt, GraphLib.hybridBFS(rebuilt, rebuilt.indexOf("Kevin Bacon")), 2, null);
+
+        // the same co-stars, with the same movie titles on every edge
+        check(updated.numVertices() == rebuilt.numVertices() && updated.numEdges() == rebuilt.numEdges(), "spliced graph has a different size");
+        for (int v = 0; v < rebuilt.numVertices(); v++) {
+            String actor = rebuilt.actor(v);
+            check(updated.inDegree(actor) == rebuilt.inDegree(actor), actor + " has different co-stars after the splice");
+            for (String coStar : rebuilt.outNeighbors(actor)) {
+                List<String> expected = new ArrayList<>(rebuilt.getLabel(actor, coStar)), actual = new ArrayList<>(updated.getLabel(actor, coStar));
+                Collections.sort(expected);
+                Collections.sort(actual);
+                check(expected.equals(actual), actor + " and " + coStar + " have movies " + actual + " instead of " + expected);
+            }
+        }
+
+        // repaired BFS results have a fresh BFS's distances, and every parent is a co-star one step closer
+        for (String center : centers) {
+            BFSResult repaired = cache.get(center), fresh = GraphLib.hybridBFS(rebuilt, rebuilt.indexOf(center));
+            for (int v = 0; v < rebuilt.numVertices(); v++) {
+                int u = updated.indexOf(rebuilt.actor(v));
+                check(repaired.distance(u) == fresh.distance(v), "repaired BFS from " + center + " is wrong at " + rebuilt.actor(v));
+                int parent = repaired.parent(u);
+                if (parent >= 0) {
+                    check(repaired.distance(parent) == repaired.distance(u) - 1 && updated.hasEdge(updated.actor(parent), updated.actor(u)),
+                            "repaired BFS from " + center + " has a bad parent at " + rebuilt.actor(v));
+                }
+            }
+        }
+
+        // the same components, whatever they're numbered, and the same average separations
+        check(components.numComponents() == rebuiltComponents.numComponents(), "merged components differ in number");
+        Map<Integer, Integer> sameComponent = new HashMap<>();
+        for (int v = 0; v < rebuilt.numVertices(); v++) {
+            int u = updated.indexOf(rebuilt.actor(v));
+            int rebuiltComponent = rebuiltComponents.component(v);
+            int expected = sameComponent.computeIfAbsent(components.component(u), root -> rebuiltComponent);
+            check(expected == rebuiltComponent, "merged components differ at " + rebuilt.actor(v));
+
+            check(separations.contains(u) == rebuiltSeparations.contains(v), "separation index disagrees on who is connected at " + rebuilt.actor(v));
+            if (rebuiltSeparations.contains(v)) {
+                check(separations.averageSeparation(u) == rebuiltSeparations.averageSeparation(v), "updated average separation is wrong for " + rebuilt.actor(v));
+            }
+        }
+
+        System.out.println("Incremental updates match a rebuild: " + updated.numVertices() + " actors, " + updated.numEdges() + " edges");
+    }
+
+    /**
+     * Checks the pruned a leaderboard against a plain BFS from every actor connected to Kevin Bacon, for several
+     * lengths and thread counts. Ties may come in either order, so the average separations are compared position by
+     * position rather than the names
+     */
+    private static void checkLowestSeparations(Path directory, CompactBaconGraph graph) {
+        ComponentIndex components = new ComponentIndex(graph);
+
+        // brute force: every connected actor's average separation from its own full BFS
+        int[] members = components.memberIds("Kevin Bacon");
+        double[] separations = new double[graph.numVertices()];
+        double[] sorted = new double[members.length];
+        for (int i = 0; i < members.length; i++) {
+            BFSResult bfs = GraphLib.hybridBFS(graph, members[i]);
+            long total = 0;
+            for (int v = 0; v < graph.numVertices(); v++) {
+                if (bfs.reached(v)) total += bfs.distance(v);
+            }
+            separations[members[i]] = (double) total / (bfs.numReached() - 1);
+            sorted[i] = separations[members[i]];
+        }
+        Arrays.sort(sorted);
+
+        AverageSeparationCalc calc = new AverageSeparationCalc();
+        for (int threads : new int[] {1, 3}) {
+            for (int k : new int[] {1, 10, 25, members.length + 5}) {
+                List<String> lowest = calc.lowestAverageSeparations(graph, components, "Kevin Bacon", k, threads, null);
+                check(lowest.size() == Math.min(k, members.length), "pruned top " + k + " has " + lowest.size() + " actors");
+                check(new HashSet<>(lowest).size() == lowest.size(), "pruned top " + k + " lists an actor twice");
+                for (int i = 0; i < lowest.size(); i++) {
+                    check(separations[graph.indexOf(lowest.get(i))] == sorted[i], "pruned top " + k + " on " + threads + " threads is wrong at " + (i + 1));
+                }
+            }
+        }
+
+        System.out.println("Pruned leaderboard matches brute force over " + members.length + " actors");
+    }
+
+    /**
+     * Checks the distance index, and the index written out and loaded back, against a BFS from a sample of actors:
+     * every distance, including -1 for actors in other components, and the paths it pulls hop by hop
+     */
+    private static void checkDistanceIndex(Path directory, CompactBaconGraph graph) throws Exception {
+
+        DistanceIndex index = new DistanceIndex(graph, null);
+        index.write(directory + "/bacon-graph.distances");
+        DistanceIndex loaded = DistanceIndex.load(graph, directory + "/bacon-graph.distances");
+
+        Random random = new Random(13);
+        for (int s = 0; s < 40; s++) {
+            int source = random.nextInt(graph.numVertices());
+            BFSResult bfs = GraphLib.hybridBFS(graph, source);
+
+            for (int v = 0; v < graph.numVertices(); v++) {
+                check(index.distance(v, source) == bfs.distance(v) && loaded.distance(source, v) == bfs.distance(v),
+                        "distance index is wrong between " + graph.actor(source) + " and " + graph.actor(v));
+            }
+
+            // a path has one hop per step of the distance, each between co-stars with the movies they share
+            for (int i = 0; i < 20; i++) {
+                int v = random.nextInt(graph.numVertices());
+                GraphPath<String, List<String>> path = loaded.path(graph.actor(v), graph.actor(source));
+                check(path.exists() == bfs.reached(v), "distance index path between " + graph.actor(v) + " and " + graph.actor(source) + " is missing");
+                if (!path.exists()) continue;
+
+                List<String> vertices = path.vertices();
+                check(path.length() == bfs.distance(v) && vertices.get(0).equals(graph.actor(v)) && vertices.get(path.length()).equals(graph.actor(source)),
+                        "distance index path between " + graph.actor(v) + " and " + graph.actor(source) + " has the wrong ends or length");
+                for (int hop = 0; hop < path.length(); hop++) {
+                    check(path.labels().get(hop).equals(graph.getLabel(vertices.get(hop), vertices.get(hop + 1))),
+                            "distance index path steps between " + vertices.get(hop) + " and " + vertices.get(hop + 1) + ", who aren't co-stars");
+                }
+            }
+        }
+
+        System.out.println("Distance index matches BFS: " + index);
+    }
+
+    /**
+     * Builds the streamed graph again on several threads and checks every array is the same as the single-threaded
+     * build's: the CSR rows, their edge labels, the packed label movies, and the actor and movie ids
+     */
+    private static void checkParallelBuild(Path directory, CompactBaconGraph graph) {
+        for (int threads : new int[] {2, 3, 7}) {
+            CompactBaconGraph parallel = new BaconGraph().createCompactBaconGraph(directory + "/actors.txt", directory + "/movies.txt", directory + "/movie-actors.txt", threads);
+
+            check(Arrays.equals(graph.offsets(), parallel.offsets()), "offsets differ on " + threads + " threads");
+            check(Arrays.equals(graph.neighbors(), parallel.neighbors()), "neighbors differ on " + threads + " threads");
+            check(Arrays.equals(graph.edgeLabels(), parallel.edgeLabels()), "edge labels differ on " + threads + " threads");
+            check(Arrays.equals(graph.labelOffsets(), parallel.labelOffsets()), "label offsets differ on " + threads + " threads");
+            check(Arrays.equals(graph.labelMovies(), parallel.labelMovies()), "label movies differ on " + threads + " threads");
+
+            check(graph.numVertices() == parallel.numVertices() && graph.numMovies() == parallel.numMovies(), "graph built on " + threads + " threads has a different size");
+            for (int v = 0; v < graph.numVertices(); v++) {
+                check(graph.actor(v).equals(parallel.actor(v)), "vertex " + v + " is a different actor on " + threads + " threads");
+            }
+            for (int m = 0; m < graph.numMovies(); m++) {
+                check(graph.movie(m).equals(parallel.movie(m)), "movie " + m + " is a different movie on " + threads + " threads");
+            }
+        }
+
+        System.out.println("Parallel builds match the single-threaded build: " + graph.numVertices() + " actors, " + graph.numEdges() + " edges");
+    }
+
+    /**
+     * Checks the distances of the hybrid BFS and of the bit-parallel multi-source BFS against the path tree of the
+     * plain GraphLib.bfs, for a sample of more than one batch of sources (one of them listed twice) to every actor
+     */
+    private static void checkBatchedBFS(Path directory, CompactBaconGraph graph) {
+        Random random = new Random(19);
+        int[] sources = new int[MultiSourceBFS.WIDTH + 6];
+        for (int i = 0; i < sources.length; i++) sources[i] = random.nextInt(graph.numVertices());
+        sources[sources.length - 1] = sources[0];
+        int[][] batched = MultiSourceBFS.distances(graph, sources, CompactGraphBuilder.identity(graph.numVertices()));
+
+        for (int i = 0; i < sources.length; i++) {
+            String source = graph.actor(sources[i]);
+            Graph<String, List<String>> tree = GraphLib.bfs(graph, source);
+            BFSResult hybrid = GraphLib.hybridBFS(graph, sources[i]);
+
+            check(hybrid.numReached() == tree.numVertices(), "hybrid BFS from " + source + " reaches a different number of actors");
+            for (int v = 0; v < graph.numVertices(); v++) {
+                String actor = graph.actor(v);
+                int expected = tree.hasVertex(actor) ? GraphLib.getPath(tree, actor).size() - 1 : -1;
+                check(hybrid.distance(v) == expected, "hybrid BFS from " + source + " is wrong at " + actor);
+                check(batched[i][v] == expected, "multi-source BFS from " + source + " is wrong at " + actor);
+            }
+        }
+
+        System.out.println("Hybrid and multi-source BFS match GraphLib.bfs from " + sources.length + " sources");
+    }
+
+    /**
+     * @throws AssertionError - with the message, if the condition doesn't hold
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
     }
 }
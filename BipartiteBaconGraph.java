@@ -0,0 +1,377 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Actor graph kept as two vertex partitions, actors and movies, instead of a co-star clique per movie. Each actor
+ * points at the movies they appeared in and each movie points at its cast, so memory grows with the total size of the
+ * cast lists rather than with the square of each cast. Co-stars and shared-movie labels are worked out on demand, so
+ * the class still implements Graph with the same vertices, neighbors and labels as the clique graph
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class BipartiteBaconGraph implements Graph<String, List<String>> {
+
+    private final NameDictionary actors;    // actor names, indexed by actor id
+    private final String[] movies;          // movie titles, indexed by movie id
+    private final int[] movieOffsets;       // cast of movie m is movieActors[movieOffsets[m] .. movieOffsets[m+1])
+    private final int[] movieActors;
+    private final int[] actorOffsets;       // movies of actor a are actorMovies[actorOffsets[a] .. actorOffsets[a+1])
+    private final int[] actorMovies;        // sorted and without repeats for each actor
+    private final int[] degrees;            // number of distinct co-stars of each actor
+    private final int numEdges;
+
+    /**
+     * Builds the actor -> movies index from the movie -> cast lists, and counts every actor's co-stars once
+     *
+     * @param actors - actor names
+     * @param movies - movie titles
+     * @param movieOffsets - start of each movie's cast in movieActors (length movies.length + 1)
+     * @param movieActors - actor ids of every cast, packed back to back
+     */
+    BipartiteBaconGraph(NameDictionary actors, String[] movies, int[] movieOffsets, int[] movieActors) {
+        this.actors = actors;
+        this.movies = movies;
+        this.movieOffsets = movieOffsets;
+        this.movieActors = movieActors;
+
+        // count the movies of every actor and turn the counts into offsets
+        int numActors = actors.size();
+        actorOffsets = new int[numActors + 1];
+        for (int actor : movieActors) {
+            actorOffsets[actor + 1]++;
+        }
+        for (int a = 0; a < numActors; a++) {
+            actorOffsets[a + 1] += actorOffsets[a];
+        }
+
+        // walking the movies in id order leaves every actor's movie list sorted, so repeats are always adjacent
+        int[] filled = new int[numActors];
+        int[] packed = new int[movieActors.length];
+        for (int m = 0; m < movies.length; m++) {
+            for (int i = movieOffsets[m]; i < movieOffsets[m + 1]; i++) {
+                int actor = movieActors[i];
+                int end = actorOffsets[actor] + filled[actor];
+
+                if (filled[actor] == 0 || packed[end - 1] != m) {
+                    packed[end] = m;
+                    filled[actor]++;
+                }
+            }
+        }
+
+        // squeeze out the space left by actors listed twice in the same cast
+        int size = 0;
+        for (int a = 0; a < numActors; a++) {
+            int start = actorOffsets[a];
+            actorOffsets[a] = size;
+            System.arraycopy(packed, start, packed, size, filled[a]);
+            size += filled[a];
+        }
+        actorOffsets[numActors] = size;
+        actorMovies = Arrays.copyOf(packed, size);
+
+        // count each actor's distinct co-stars, marking everyone already counted with the actor's stamp
+        degrees = new int[numActors];
+        int[] seen = new int[numActors];
+        long total = 0;
+        for (int a = 0; a < numActors; a++) {
+            seen[a] = a + 1;
+            for (int i = actorOffsets[a]; i < actorOffsets[a + 1]; i++) {
+                int movie = actorMovies[i];
+                for (int j = movieOffsets[movie]; j < movieOffsets[movie + 1]; j++) {
+                    int costar = movieActors[j];
+                    if (seen[costar] != a + 1) {
+                        seen[costar] = a + 1;
+                        degrees[a]++;
+                    }
+                }
+            }
+            total += degrees[a];
+        }
+        numEdges = (int) total;
+    }
+
+    /**
+     * @param actor - actor name
+     * @return - the actor id, or -1 if the actor isn't in the graph
+     */
+    public int indexOf(String actor) {
+        return actors.indexOf(actor);
+    }
+
+    /**
+     * @param a - actor id
+     * @return - the actor with that id
+     */
+    public String actor(int a) {
+        return actors.get(a);
+    }
+
+    public int numMovies() {
+        return movies.length;
+    }
+
+    /**
+     * @param movie - movie id
+     * @return - the movie title
+     */
+    public String movie(int movie) {
+        return movies[movie];
+    }
+
+    /**
+     * Rough number of bytes held by the graph, counting the arrays and the interned names
+     */
+    public long estimatedBytes() {
+        long bytes = actors.estimatedBytes() + 16 + 4L * movies.length;
+        for (String movie : movies) {
+            bytes += 56 + movie.length();
+        }
+        bytes += 16 + 4L * movieOffsets.length;
+        bytes += 16 + 4L * movieActors.length;
+        bytes += 16 + 4L * actorOffsets.length;
+        bytes += 16 + 4L * actorMovies.length;
+        bytes += 16 + 4L * degrees.length;
+        return bytes;
+    }
+
+    /**
+     * BFS from the source through actor -> movie -> actor hops, returning the same shortest path tree as GraphLib.bfs
+     * on the clique graph. Every movie's cast is scanned at most once, so the search is linear in the total cast size
+     *
+     * @param source - the actor you're searching from
+     * @return - a path tree with each reached actor pointing at its parent, labelled with their shared movies
+     */
+    public Graph<String, List<String>> bfs(String source) {
+        Graph<String, List<String>> pathTree = new AdjacencyMapGraph<>();
+        int sourceID = actors.indexOf(source);
+        if (sourceID < 0) return pathTree;
+
+        // parent of every actor reached so far (-1 if not reached), and whether each movie's cast has been scanned
+        int[] parent = new int[actors.size()];
+        Arrays.fill(parent, -1);
+        boolean[] scanned = new boolean[movies.length];
+
+        int[] queue = new int[actors.size()];
+        int head = 0, tail = 0;
+        queue[tail++] = sourceID;
+        parent[sourceID] = sourceID;
+        pathTree.insertVertex(source);
+
+        // while the queue isn't empty...
+        while (head < tail) {
+            int current = queue[head++];
+            int firstChild = tail;
+
+            // scan the cast of every movie of the current actor that no earlier actor has scanned
+            for (int i = actorOffsets[current]; i < actorOffsets[current + 1]; i++) {
+                int movie = actorMovies[i];
+                if (scanned[movie]) continue;
+                scanned[movie] = true;
+
+                for (int j = movieOffsets[movie]; j < movieOffsets[movie + 1]; j++) {
+                    int costar = movieActors[j];
+
+                    if (parent[costar] == -1) {
+                        parent[costar] = current;
+                        queue[tail++] = costar;
+                    }
+                }
+            }
+
+            // enqueue the new children in id order, the order the clique graph lists neighbors in, so ties between
+            // equally short paths break the same way
+            Arrays.sort(queue, firstChild, tail);
+
+            for (int k = firstChild; k < tail; k++) {
+                String child = actors.get(queue[k]);
+                String parentActor = actors.get(current);
+
+                pathTree.insertVertex(child);
+                pathTree.insertDirected(child, parentActor, sharedMovies(queue[k], current));
+            }
+        }
+
+        return pathTree;
+    }
+
+    /* ---------- Graph interface, with co-stars worked out from the movies ---------- */
+
+    @Override
+    public int numVertices() {
+        return actors.size();
+    }
+
+    /**
+     * Counts each co-star pair twice, the same way AdjacencyMapGraph does
+     */
+    @Override
+    public int numEdges() {
+        return numEdges;
+    }
+
+    @Override
+    public Iterable<String> vertices() {
+        return actors;
+    }
+
+    @Override
+    public boolean hasVertex(String v) {
+        return actors.indexOf(v) >= 0;
+    }
+
+    @Override
+    public boolean hasEdge(String u, String v) {
+        return getLabel(u, v) != null;
+    }
+
+    /**
+     * @return - the movies both actors appeared in, or null if they never appeared together
+     */
+    @Override
+    public List<String> getLabel(String u, String v) {
+        int uID = actors.indexOf(u), vID = actors.indexOf(v);
+        if (uID < 0 || vID < 0 || uID == vID) return null;
+        return sharedMovies(uID, vID);
+    }
+
+    @Override
+    public int outDegree(String v) {
+        return degrees[actorID(v)];
+    }
+
+    @Override
+    public int inDegree(String v) {
+        return outDegree(v);
+    }
+
+    /**
+     * Every co-star of the actor, in id order
+     */
+    @Override
+    public Iterable<String> outNeighbors(String v) {
+        List<String> neighbors = new ArrayList<>();
+        for (int costar : costars(actorID(v))) {
+            neighbors.add(actors.get(costar));
+        }
+        return neighbors;
+    }
+
+    @Override
+    public Iterable<String> inNeighbors(String v) {
+        return outNeighbors(v);
+    }
+
+    @Override
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("BipartiteBaconGraph is immutable");
+    }
+
+    @Override
+    public void insertDirected(String u, String v, List<String> e) {
+        throw new UnsupportedOperationException("BipartiteBaconGraph is immutable");
+    }
+
+    @Override
+    public void insertUndirected(String u, String v, List<String> e) {
+        throw new UnsupportedOperationException("BipartiteBaconGraph is immutable");
+    }
+
+    @Override
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("BipartiteBaconGraph is immutable");
+    }
+
+    @Override
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("BipartiteBaconGraph is immutable");
+    }
+
+    @Override
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("BipartiteBaconGraph is immutable");
+    }
+
+    /**
+     * Lists each movie with its cast, e.g. {A Movie=[Kevin Bacon, Alice], B Movie=[Alice, Bob]}
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+
+        for (int m = 0; m < movies.length; m++) {
+            if (m > 0) result.append(", ");
+            result.append(movies[m]).append("=[");
+
+            for (int i = movieOffsets[m]; i < movieOffsets[m + 1]; i++) {
+                if (i > movieOffsets[m]) result.append(", ");
+                result.append(actors.get(movieActors[i]));
+            }
+            result.append(']');
+        }
+
+        return result.append('}').toString();
+    }
+
+    /**
+     * Merges the two sorted movie lists to find the movies both actors appeared in
+     *
+     * @return - the shared movie titles in id order, or null if there are none
+     */
+    private List<String> sharedMovies(int u, int v) {
+        List<String> shared = null;
+        int i = actorOffsets[u], iEnd = actorOffsets[u + 1];
+        int j = actorOffsets[v], jEnd = actorOffsets[v + 1];
+
+        while (i < iEnd && j < jEnd) {
+            if (actorMovies[i] < actorMovies[j]) i++;
+            else if (actorMovies[i] > actorMovies[j]) j++;
+            else {
+                if (shared == null) shared = new ArrayList<>();
+                shared.add(movies[actorMovies[i]]);
+                i++;
+                j++;
+            }
+        }
+
+        return shared;
+    }
+
+    /**
+     * @return - the distinct co-stars of the actor (never the actor themselves), sorted by id
+     */
+    private int[] costars(int a) {
+        int count = 0;
+        for (int i = actorOffsets[a]; i < actorOffsets[a + 1]; i++) {
+            int movie = actorMovies[i];
+            count += movieOffsets[movie + 1] - movieOffsets[movie];
+        }
+
+        // gather every cast member of every movie, then sort and drop repeats and the actor themselves
+        int[] all = new int[count];
+        count = 0;
+        for (int i = actorOffsets[a]; i < actorOffsets[a + 1]; i++) {
+            int movie = actorMovies[i];
+            for (int j = movieOffsets[movie]; j < movieOffsets[movie + 1]; j++) {
+                all[count++] = movieActors[j];
+            }
+        }
+        Arrays.sort(all);
+
+        int size = 0;
+        for (int k = 0; k < count; k++) {
+            if (all[k] != a && (size == 0 || all[size - 1] != all[k])) all[size++] = all[k];
+        }
+        return Arrays.copyOf(all, size);
+    }
+
+    /**
+     * Looks up the id of an actor that must be in the graph
+     */
+    private int actorID(String v) {
+        int id = actors.indexOf(v);
+        if (id < 0) throw new IllegalArgumentException(v + " is not in the graph");
+        return id;
+    }
+}
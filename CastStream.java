@@ -0,0 +1,168 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Feeds "movie id|actor id" cast entries straight into a CompactGraphBuilder, one movie at a time, so no movie -> cast
+ * map is ever built. Entries are expected grouped by movie, the way movie-actors.txt is written: the current movie's
+ * cast is buffered as vertex ids and added to the builder as soon as the next movie starts. Every movie id becomes its
+ * own movie in the graph, so two movies with the same title stay separate
+ *
+ * If a movie turns up again after its cast was added, the entries weren't grouped and the stream stops taking them;
+ * isGrouped() then says the entries must be grouped (see groupByMovie) and streamed into a fresh builder
+ *
+ * A CastListener is handed every cast as it's added, with the movie id it came from, which is how a LiveBaconGraph
+ * learns the casts of a graph by movie id without a movie -> cast map
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class CastStream implements PipeFileReader.IdPairHandler {
+
+    /**
+     * Told about every cast the stream adds to the builder
+     */
+    public interface CastListener {
+        /**
+         * @param movieID - id of the movie in the file
+         * @param movie - movie id the builder gave it
+         * @param cast - vertex ids of its cast, only valid during the call
+         * @param size - number of entries of cast to use
+         */
+        void accept(int movieID, int movie, int[] cast, int size);
+    }
+
+    private final CompactGraphBuilder builder;
+    private final IntStringMap actorTable;
+    private final IntStringMap movieTable;
+    private final CastListener listener;                // may be null
+    private final BitSet added = new BitSet();          // ids of the known movies whose casts were added
+    private final BitSet addedNegative = new BitSet();  // same for negative ids, at ~id
+
+    private int movieID;                // id of the movie being buffered
+    private int[] cast = new int[16];   // vertex ids of its cast so far
+    private int size = -1;              // size of the buffered cast, or -1 before the first entry
+    private boolean grouped = true;
+    private long unknown;
+
+    /**
+     * Adds every actor to the builder, in id order, so vertex ids follow actor ids
+     *
+     * @param builder - builder to add the movies and casts to
+     * @param actorTable - actor ids to names
+     * @param movieTable - movie ids to titles
+     */
+    public CastStream(CompactGraphBuilder builder, IntStringMap actorTable, IntStringMap movieTable) {
+        this(builder, actorTable, movieTable, null);
+    }
+
+    /**
+     * Same stream, also handing every cast added to the listener
+     *
+     * @param builder - builder to add the movies and casts to
+     * @param actorTable - actor ids to names
+     * @param movieTable - movie ids to titles
+     * @param listener - told about every cast as it's added (may be null)
+     */
+    public CastStream(CompactGraphBuilder builder, IntStringMap actorTable, IntStringMap movieTable, CastListener listener) {
+        this.builder = builder;
+        this.actorTable = actorTable;
+        this.movieTable = movieTable;
+        this.listener = listener;
+        actorTable.forEach((ID, actor) -> builder.addActor(actor));
+    }
+
+    /**
+     * Buffers one cast entry, adding the previous movie's cast first if this entry starts a new movie
+     */
+    @Override
+    public void accept(int movieID, int actorID) {
+        if (!grouped) return;
+
+        if (size < 0 || movieID != this.movieID) {
+            finish();
+            if (wasAdded(movieID)) {
+                grouped = false;
+                return;
+            }
+            this.movieID = movieID;
+            size = 0;
+        }
+
+        // an entry naming an actor or movie that isn't in the tables can't be placed
+        String actor = actorTable.get(actorID);
+        if (actor == null || !movieTable.containsKey(movieID)) {
+            unknown++;
+            return;
+        }
+
+        if (size == cast.length) cast = Arrays.copyOf(cast, size * 2);
+        cast[size++] = builder.addActor(actor);
+    }
+
+    /**
+     * Adds the cast of the movie being buffered; call once after the last entry
+     */
+    public void finish() {
+        if (size < 0) return;
+
+        if (size > 0) {
+            int movie = builder.addMovie(movieTable.get(movieID));
+            builder.addCast(movie, cast, size);
+            if (listener != null) listener.accept(movieID, movie, cast, size);
+        }
+
+        // only known ids are marked, so a stray huge id doesn't grow the set; unknown movies add nothing anyway
+        if (movieTable.containsKey(movieID)) {
+            if (movieID >= 0) added.set(movieID);
+            else addedNegative.set(~movieID);
+        }
+        size = -1;
+    }
+
+    /**
+     * @return - false if a movie's entries were split up, in which case the builder is missing casts
+     */
+    public boolean isGrouped() {
+        return grouped;
+    }
+
+    /**
+     * @return - number of entries skipped for naming an unknown actor or movie
+     */
+    public long unknown() {
+        return unknown;
+    }
+
+    /**
+     * @return - whether the movie's cast was already added
+     */
+    private boolean wasAdded(int movieID) {
+        return movieID >= 0 ? added.get(movieID) : addedNegative.get(~movieID);
+    }
+
+    /**
+     * Reorders cast entries so each movie's entries are together, with movies in the order they first appear and each
+     * cast in its original order, using a counting sort on int arrays
+     *
+     * @param movieIDs - movie id of every entry
+     * @param actorIDs - actor id of every entry
+     * @param size - number of entries to use
+     * @param handler - gets every entry, grouped by movie
+     */
+    public static void groupByMovie(int[] movieIDs, int[] actorIDs, int size, PipeFileReader.IdPairHandler handler) {
+        // number the movies in the order they first appear
+        IntIntMap index = new IntIntMap();
+        int[] key = new int[size];
+        for (int i = 0; i < size; i++) {
+            int movie = index.get(movieIDs[i]);
+            if (movie < 0) {
+                movie = index.size();
+                index.put(movieIDs[i], movie);
+            }
+            key[i] = movie;
+        }
+
+        for (int entry : CompactGraphBuilder.countingSort(key, CompactGraphBuilder.identity(size), index.size())) {
+            handler.accept(movieIDs[entry], actorIDs[entry]);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable actor graph stored in compressed sparse row (CSR) form. Actors are interned once in a NameDictionary and
+ * referred to everywhere else by int id. The neighbors of actor v are neighbors[offsets[v] .. offsets[v+1]) in
+ * increasing id order, and each of those neighbor slots points at a shared edge label: the ids of the movies the two
+ * actors appeared in together. Implements Graph so GraphLib and the game work on it unchanged
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class CompactBaconGraph implements Graph<String, List<String>> {
+
+    private final NameDictionary actors;    // actor names, indexed by vertex id
+    private final StringTable movies;       // movie titles, indexed by movie id
+    private final int[] offsets;            // neighbors of v are neighbors[offsets[v] .. offsets[v+1])
+    private final int[] neighbors;          // neighbor vertex ids, sorted within each vertex
+    private final int[] edgeLabels;         // label id for each neighbor slot (both directions share one label)
+    private final int[] labelOffsets;       // movies of label l are labelMovies[labelOffsets[l] .. labelOffsets[l+1])
+    private final int[] labelMovies;        // movie ids of every label, packed back to back
+    private final MovieLabels labels;       // views of the labels as movie titles
+
+    /**
+     * Only called by CompactGraphBuilder and GraphSnapshot, which guarantee the arrays are consistent
+     */
+    CompactBaconGraph(NameDictionary actors, StringTable movies, int[] offsets, int[] neighbors, int[] edgeLabels,
+                      int[] labelOffsets, int[] labelMovies) {
+        this.actors = actors;
+        this.movies = movies;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.edgeLabels = edgeLabels;
+        this.labelOffsets = labelOffsets;
+        this.labelMovies = labelMovies;
+        this.labels = new MovieLabels(movies, labelOffsets, labelMovies);
+    }
+
+    /* ---------- int-indexed access, used by the array-based algorithms ---------- */
+
+    /**
+     * @param actor - actor name
+     * @return - the vertex id of the actor, or -1 if the actor isn't in the graph
+     */
+    public int indexOf(String actor) {
+        return actors.indexOf(actor);
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - the actor with that vertex id
+     */
+    public String actor(int v) {
+        return actors.get(v);
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - number of co-stars of the actor
+     */
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Backing offsets array (length numVertices() + 1). Callers must not modify it
+     */
+    int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * Backing neighbors array (length numEdges()). Callers must not modify it
+     */
+    int[] neighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Finds the neighbor slot of v inside u's adjacency using binary search
+     *
+     * @param u - vertex id
+     * @param v - vertex id
+     * @return - index into the neighbors array, or -1 if there is no edge
+     */
+    public int edgeSlot(int u, int v) {
+        int slot = Arrays.binarySearch(neighbors, offsets[u], offsets[u + 1], v);
+        return slot >= 0 ? slot : -1;
+    }
+
+    /**
+     * @param slot - index into the neighbors array
+     * @return - id of the label shared by both directions of that edge
+     */
+    public int labelId(int slot) {
+        return edgeLabels[slot];
+    }
+
+    /**
+     * @param slot - index into the neighbors array
+     * @return - read-only list of the movie titles on that edge
+     */
+    public List<String> label(int slot) {
+        return labels.get(edgeLabels[slot]);
+    }
+
+    public int numMovies() {
+        return movies.size();
+    }
+
+    /**
+     * @param movie - movie id
+     * @return - the movie title
+     */
+    public String movie(int movie) {
+        return movies.get(movie);
+    }
+
+    /**
+     * Rough number of bytes held by the graph, counting the arrays and the interned names
+     */
+    public long estimatedBytes() {
+        long bytes = actors.estimatedBytes() + movies.estimatedBytes();
+        bytes += 16 + 4L * offsets.length;
+        bytes += 16 + 4L * neighbors.length;
+        bytes += 16 + 4L * edgeLabels.length;
+        bytes += 16 + 4L * labelOffsets.length;
+        bytes += 16 + 4L * labelMovies.length;
+        return bytes;
+    }
+
+    /* ---------- backing structures, for writing snapshots; callers must not modify them ---------- */
+
+    NameDictionary actors() {
+        return actors;
+    }
+
+    StringTable movies() {
+        return movies;
+    }
+
+    int[] edgeLabels() {
+        return edgeLabels;
+    }
+
+    int[] labelOffsets() {
+        return labelOffsets;
+    }
+
+    int[] labelMovies() {
+        return labelMovies;
+    }
+
+    /* ---------- Graph interface ---------- */
+
+    @Override
+    public int numVertices() {
+        return actors.size();
+    }
+
+    /**
+     * Counts each undirected co-star edge twice, the same way AdjacencyMapGraph does
+     */
+    @Override
+    public int numEdges() {
+        return neighbors.length;
+    }
+
+    @Override
+    public Iterable<String> vertices() {
+        return actors;
+    }
+
+    @Override
+    public boolean hasVertex(String v) {
+        return actors.indexOf(v) >= 0;
+    }
+
+    @Override
+    public boolean hasEdge(String u, String v) {
+        int uId = actors.indexOf(u), vId = actors.indexOf(v);
+        return uId >= 0 && vId >= 0 && edgeSlot(uId, vId) >= 0;
+    }
+
+    @Override
+    public List<String> getLabel(String u, String v) {
+        int uId = actors.indexOf(u), vId = actors.indexOf(v);
+        if (uId < 0 || vId < 0) return null;
+
+        int slot = edgeSlot(uId, vId);
+        return slot >= 0 ? label(slot) : null;
+    }
+
+    @Override
+    public int outDegree(String v) {
+        return degree(vertexId(v));
+    }
+
+    /**
+     * Same as outDegree, since every edge is undirected
+     */
+    @Override
+    public int inDegree(String v) {
+        return degree(vertexId(v));
+    }
+
+    @Override
+    public Iterable<String> outNeighbors(String v) {
+        int id = vertexId(v);
+        return new ActorList(offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * Same as outNeighbors, since every edge is undirected
+     */
+    @Override
+    public Iterable<String> inNeighbors(String v) {
+        return outNeighbors(v);
+    }
+
+    @Override
+    public void insertVertex(String v) {
+        throw new UnsupportedOperationException("CompactBaconGraph is immutable");
+    }
+
+    @Override
+    public void insertDirected(String u, String v, List<String> e) {
+        throw new UnsupportedOperationException("CompactBaconGraph is immutable");
+    }
+
+    @Override
+    public void insertUndirected(String u, String v, List<String> e) {
+        throw new UnsupportedOperationException("CompactBaconGraph is immutable");
+    }
+
+    @Override
+    public void removeVertex(String v) {
+        throw new UnsupportedOperationException("CompactBaconGraph is immutable");
+    }
+
+    @Override
+    public void removeDirected(String u, String v) {
+        throw new UnsupportedOperationException("CompactBaconGraph is immutable");
+    }
+
+    @Override
+    public void removeUndirected(String u, String v) {
+        throw new UnsupportedOperationException("CompactBaconGraph is immutable");
+    }
+
+    /**
+     * Lists each actor with their co-stars and shared movies, e.g. {Alice={Bob=[A Movie]}, Bob={Alice=[A Movie]}}
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+
+        for (int v = 0; v < numVertices(); v++) {
+            if (v > 0) result.append(", ");
+            result.append(actors.get(v)).append("={");
+
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (slot > offsets[v]) result.append(", ");
+                result.append(actors.get(neighbors[slot])).append('=').append(label(slot));
+            }
+            result.append('}');
+        }
+
+        return result.append('}').toString();
+    }
+
+    /**
+     * Looks up the vertex id of an actor that must be in the graph
+     */
+    private int vertexId(String v) {
+        int id = actors.indexOf(v);
+        if (id < 0) throw new IllegalArgumentException(v + " is not in the graph");
+        return id;
+    }
+
+    /**
+     * Read-only view of a range of the neighbors array as actor names
+     */
+    private class ActorList extends AbstractList<String> {
+        private final int start, end;
+
+        ActorList(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException(index);
+            return actors.get(neighbors[start + index]);
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Collects actors, movies and casts and then packs them into an immutable CompactBaconGraph. Casts are kept as flat
+ * int arrays of vertex ids and only expanded into co-star pairs by build, which can spread the work across threads:
+ * every thread counts and writes the pairs of its own share of the casts into rows by lower vertex id, and the rows
+ * are then sorted and packed independently. Rows are filled in cast order whatever the number of threads, so the
+ * graph is the same for any number of threads, and no per-edge objects are ever created
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class CompactGraphBuilder {
+
+    /**
+     * Gets every edge from forEachEdge
+     */
+    public interface EdgeConsumer {
+        /**
+         * @param lower - lower vertex id of the edge
+         * @param higher - higher vertex id
+         * @param movies - read-only view of the movies the two actors share
+         */
+        void accept(int lower, int higher, List<String> movies);
+    }
+
+    private final NameDictionary actors = new NameDictionary();
+    private String[] movies = new String[16];
+    private int numMovies;
+
+    // cast c is movie castMovie[c] with the actors castMembers[castStart[c] .. castStart[c+1]), in the order added
+    private int[] castMovie = new int[16];
+    private int[] castStart = new int[17];
+    private int[] castMembers = new int[64];
+    private int numCasts;
+
+    /**
+     * Adds an actor as a vertex (a no-op if the actor was already added)
+     *
+     * @param actor - actor name
+     * @return - the vertex id of the actor
+     */
+    public int addActor(String actor) {
+        return actors.add(actor);
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - the actor added with that id
+     */
+    public String actor(int v) {
+        return actors.get(v);
+    }
+
+    public int numActors() {
+        return actors.size();
+    }
+
+    /**
+     * Adds a movie. Every call gets a fresh id, so two movies with the same title stay separate
+     *
+     * @param title - movie title
+     * @return - the movie id
+     */
+    public int addMovie(String title) {
+        if (numMovies == movies.length) movies = Arrays.copyOf(movies, numMovies * 2);
+        movies[numMovies] = title;
+        return numMovies++;
+    }
+
+    /**
+     * Connects every pair of actors in the cast with the given movie
+     *
+     * @param movie - movie id from addMovie
+     * @param cast - vertex ids of the actors in the movie
+     * @param size - number of entries of cast to use
+     */
+    public void addCast(int movie, int[] cast, int size) {
+        // a cast of one connects nobody
+        if (size < 2) return;
+
+        if (numCasts == castMovie.length) {
+            castMovie = Arrays.copyOf(castMovie, numCasts * 2);
+            castStart = Arrays.copyOf(castStart, numCasts * 2 + 1);
+        }
+        int members = castStart[numCasts];
+        if (members + size > castMembers.length) castMembers = Arrays.copyOf(castMembers, Math.max(castMembers.length * 2, members + size));
+
+        System.arraycopy(cast, 0, castMembers, members, size);
+        castMovie[numCasts] = movie;
+        castStart[++numCasts] = members + size;
+    }
+
+    /**
+     * Packs everything added so far into a CompactBaconGraph. Movies on each edge keep the order they were added in
+     */
+    public CompactBaconGraph build() {
+        return build(1);
+    }
+
+    /**
+     * Packs everything added so far into a CompactBaconGraph, with the pairs expanded, sorted and packed by several
+     * threads. The graph is the same for every number of threads
+     *
+     * @param threads - number of threads to build with (1 builds on the calling thread)
+     * @return - the graph
+     */
+    public CompactBaconGraph build(int threads) {
+        int numVertices = actors.size();
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+
+        try {
+            Edges edges = expand(pool, threads);
+            int[] vertexRanges = edges.vertexRanges, edgeStart = edges.edgeStart, edgeSecond = edges.edgeSecond;
+            int[][] lowerPosition = edges.lowerPosition;
+            int numVertexRanges = vertexRanges.length - 1;
+            int numEdges = edgeStart[numVertices];
+
+            // every vertex has the edges it is the higher end of first (in order of their lower end), then the rest
+            int[] offsets = new int[numVertices + 1];
+            for (int v = 0; v < numVertices; v++) {
+                int position = offsets[v];
+                for (int r = 0; r < numVertexRanges; r++) {
+                    int count = lowerPosition[r][v];
+                    lowerPosition[r][v] = position;
+                    position += count;
+                }
+                offsets[v + 1] = position + edgeStart[v + 1] - edgeStart[v];
+            }
+
+            // fill both directions of every edge; each range writes its own slots, so every row comes out sorted
+            int[] neighbors = new int[2 * numEdges];
+            int[] edgeLabels = new int[2 * numEdges];
+            run(pool, numVertexRanges, r -> {
+                for (int v = vertexRanges[r]; v < vertexRanges[r + 1]; v++) {
+                    int slot = offsets[v + 1] - (edgeStart[v + 1] - edgeStart[v]);
+
+                    for (int e = edgeStart[v]; e < edgeStart[v + 1]; e++, slot++) {
+                        int second = edgeSecond[e];
+                        neighbors[slot] = second;
+                        edgeLabels[slot] = e;
+                        neighbors[lowerPosition[r][second]] = v;
+                        edgeLabels[lowerPosition[r][second]++] = e;
+                    }
+                }
+            });
+
+            return new CompactBaconGraph(actors, new StringTable(Arrays.copyOf(movies, numMovies)), offsets, neighbors, edgeLabels,
+                    edges.labelOffsets, edges.labelMovies);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    /**
+     * Expands and merges the co-star pairs the way build does, but hands every edge to the consumer, in order of its
+     * lower vertex and then its higher one, instead of packing both directions into a graph. Only the edges and their
+     * labels are held, for callers that put the edges into a graph of their own
+     *
+     * @param threads - number of threads to expand and sort the pairs with (the consumer is called on this thread)
+     * @param consumer - gets every edge once, with a label view into one shared movie array
+     */
+    public void forEachEdge(int threads, EdgeConsumer consumer) {
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+
+        Edges edges;
+        try {
+            edges = expand(pool, threads);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+
+        MovieLabels labels = new MovieLabels(new StringTable(Arrays.copyOf(movies, numMovies)), edges.labelOffsets, edges.labelMovies);
+        for (int v = 0; v < actors.size(); v++) {
+            for (int e = edges.edgeStart[v]; e < edges.edgeStart[v + 1]; e++) {
+                consumer.accept(v, edges.edgeSecond[e], labels.get(e));
+            }
+        }
+    }
+
+    /**
+     * Every edge once, by lower vertex: edges of vertex v are edgeStart[v] .. edgeStart[v+1), each with its higher
+     * vertex and a label of movies. lowerPosition[r][v] counts the edges range r found with v as the higher end
+     */
+    private static final class Edges {
+        final int[] vertexRanges;       // the ranges of vertices the rows were split into
+        final int[] edgeStart;
+        final int[] edgeSecond;
+        final int[] labelOffsets;
+        final int[] labelMovies;
+        final int[][] lowerPosition;
+
+        Edges(int[] vertexRanges, int[] edgeStart, int[] edgeSecond, int[] labelOffsets, int[] labelMovies, int[][] lowerPosition) {
+            this.vertexRanges = vertexRanges;
+            this.edgeStart = edgeStart;
+            this.edgeSecond = edgeSecond;
+            this.labelOffsets = labelOffsets;
+            this.labelMovies = labelMovies;
+            this.lowerPosition = lowerPosition;
+        }
+    }
+
+    /**
+     * Expands the casts into co-star pairs, sorts them into rows by lower vertex id and merges each run of the same
+     * pair into one edge with a label of movies
+     *
+     * @param pool - threads to run on, or null for the calling thread
+     * @param threads - number of ranges to split the work into
+     * @return - the merged edges
+     */
+    private Edges expand(ExecutorService pool, int threads) {
+        int numVertices = actors.size();
+
+        // split the casts into one range per thread with about the same number of pairs each
+        long[] pairsBefore = new long[numCasts + 1];
+        for (int c = 0; c < numCasts; c++) {
+            long size = castStart[c + 1] - castStart[c];
+            pairsBefore[c + 1] = pairsBefore[c] + size * (size - 1) / 2;
+        }
+        if (pairsBefore[numCasts] > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many co-star pairs for one graph");
+        int[] castRanges = split(c -> pairsBefore[c], numCasts, threads);
+        int numRanges = castRanges.length - 1;
+
+        // every range counts its pairs in each row (the row of a pair is its lower vertex id)
+        int[][] rowPosition = new int[numRanges][numVertices];
+        run(pool, numRanges, r -> forEachPair(castRanges[r], castRanges[r + 1], (first, second, cast) -> rowPosition[r][first]++));
+
+        // rows are back to back, and within a row every range writes after the ranges of earlier casts
+        int[] rowStart = new int[numVertices + 1];
+        for (int v = 0; v < numVertices; v++) {
+            int position = rowStart[v];
+            for (int r = 0; r < numRanges; r++) {
+                int count = rowPosition[r][v];
+                rowPosition[r][v] = position;
+                position += count;
+            }
+            rowStart[v + 1] = position;
+        }
+
+        // every range writes its pairs into the rows as (higher vertex id, cast), packed into one long
+        long[] pairs = new long[rowStart[numVertices]];
+        run(pool, numRanges, r -> forEachPair(castRanges[r], castRanges[r + 1],
+                (first, second, cast) -> pairs[rowPosition[r][first]++] = (long) second << 32 | cast));
+        Arrays.fill(rowPosition, null);
+
+        // sort every row by (second, cast) and count its edges and label movies; runs of the same second are one edge
+        int[] vertexRanges = split(v -> rowStart[v], numVertices, threads);
+        int numVertexRanges = vertexRanges.length - 1;
+        int[] edgeStart = new int[numVertices + 1];
+        int[] labelStart = new int[numVertices + 1];
+        run(pool, numVertexRanges, r -> {
+            for (int v = vertexRanges[r]; v < vertexRanges[r + 1]; v++) {
+                Arrays.sort(pairs, rowStart[v], rowStart[v + 1]);
+
+                int edges = 0, labelMovies = 0;
+                for (int k = rowStart[v]; k < rowStart[v + 1]; k++) {
+                    if (k == rowStart[v] || second(pairs[k]) != second(pairs[k - 1])) edges++;
+                    else if (castMovie[cast(pairs[k])] == castMovie[cast(pairs[k - 1])]) continue;
+                    labelMovies++;
+                }
+                edgeStart[v + 1] = edges;
+                labelStart[v + 1] = labelMovies;
+            }
+        });
+        for (int v = 0; v < numVertices; v++) {
+            edgeStart[v + 1] += edgeStart[v];
+            labelStart[v + 1] += labelStart[v];
+        }
+        int numEdges = edgeStart[numVertices];
+
+        // walk the sorted rows, merging runs of the same (first, second) into one edge with a label of movies; every
+        // range also counts the edges each vertex is the higher end of
+        int[] edgeSecond = new int[numEdges];
+        int[] labelOffsets = new int[numEdges + 1];
+        int[] labelMovies = new int[labelStart[numVertices]];
+        int[][] lowerPosition = new int[numVertexRanges][numVertices];
+        run(pool, numVertexRanges, r -> {
+            int e = edgeStart[vertexRanges[r]] - 1, size = labelStart[vertexRanges[r]];
+
+            for (int v = vertexRanges[r]; v < vertexRanges[r + 1]; v++) {
+                for (int k = rowStart[v]; k < rowStart[v + 1]; k++) {
+                    int second = second(pairs[k]), movie = castMovie[cast(pairs[k])];
+
+                    // start a new edge when the pair changes
+                    if (k == rowStart[v] || second != second(pairs[k - 1])) {
+                        edgeSecond[++e] = second;
+                        labelOffsets[e] = size;
+                        lowerPosition[r][second]++;
+                    }
+                    // skip the movie if the same cast listed the pair twice
+                    else if (labelMovies[size - 1] == movie) continue;
+
+                    labelMovies[size++] = movie;
+                }
+            }
+        });
+        labelOffsets[numEdges] = labelMovies.length;
+
+        return new Edges(vertexRanges, edgeStart, edgeSecond, labelOffsets, labelMovies, lowerPosition);
+    }
+
+    /**
+     * Gets every (first, second, cast) triple of the given casts, with first < second; an actor listed twice in the
+     * same cast doesn't get an edge to themselves
+     */
+    private void forEachPair(int fromCast, int toCast, PairConsumer consumer) {
+        for (int c = fromCast; c < toCast; c++) {
+            for (int i = castStart[c]; i < castStart[c + 1] - 1; i++) {
+                for (int j = i + 1; j < castStart[c + 1]; j++) {
+                    int a = castMembers[i], b = castMembers[j];
+                    if (a != b) consumer.accept(Math.min(a, b), Math.max(a, b), c);
+                }
+            }
+        }
+    }
+
+    private interface PairConsumer {
+        void accept(int first, int second, int cast);
+    }
+
+    private interface RangeTask {
+        void run(int range);
+    }
+
+    private static int second(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int cast(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * Splits [0, n) into at most the given number of ranges with about the same weight each
+     *
+     * @param before - total weight of the items before item i, for i from 0 to n
+     * @param n - number of items
+     * @param ranges - number of ranges wanted
+     * @return - the range boundaries, starting with 0 and ending with n
+     */
+    private static int[] split(IntToLongFunction before, int n, int ranges) {
+        int[] bounds = new int[ranges + 1];
+        long total = before.applyAsLong(n);
+
+        for (int r = 1; r < ranges; r++) {
+            // the first item whose weight before it reaches r / ranges of the total
+            long target = total * r / ranges;
+            int low = bounds[r - 1], high = n;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (before.applyAsLong(mid) < target) low = mid + 1;
+                else high = mid;
+            }
+            bounds[r] = low;
+        }
+        bounds[ranges] = n;
+        return bounds;
+    }
+
+    /**
+     * Runs the task for every range, on the pool if there is one and on the calling thread otherwise, and waits for all
+     */
+    private static void run(ExecutorService pool, int ranges, RangeTask task) {
+        if (pool == null) {
+            for (int r = 0; r < ranges; r++) task.run(r);
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int r = 0; r < ranges; r++) {
+            int range = r;
+            tasks.add(() -> {
+                task.run(range);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the graph", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Graph builder thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stable counting sort of the given pair indices by key[index]
+     *
+     * @param key - key of every pair, in [0, numKeys)
+     * @param indices - pair indices in their current order
+     * @param numKeys - number of distinct keys
+     * @return - the pair indices reordered by key
+     */
+    static int[] countingSort(int[] key, int[] indices, int numKeys) {
+        int[] start = new int[numKeys + 1];
+        for (int index : indices) {
+            start[key[index] + 1]++;
+        }
+        for (int k = 0; k < numKeys; k++) {
+            start[k + 1] += start[k];
+        }
+
+        int[] sorted = new int[indices.length];
+        for (int index : indices) {
+            sorted[start[key[index]]++] = index;
+        }
+        return sorted;
+    }
+
+    /**
+     * @return - the array 0, 1, ..., n-1
+     */
+    static int[] identity(int n) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+}
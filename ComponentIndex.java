@@ -0,0 +1,252 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Connected components of an actor graph, found once with union-find instead of by a BFS from whoever is asked about.
+ * Each component keeps its size at its root and its members in a circular list, so whether two actors are connected
+ * and how big a component is take a couple of lookups, and listing a component only walks that component. On a live
+ * graph, added edges are unioned in as deltas are applied, since adding co-stars can only merge components
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class ComponentIndex implements LiveBaconGraph.Listener {
+
+    private int[] parent;       // union-find parent of each vertex; roots are their own parent
+    private int[] size;         // number of vertices in the component, kept at its root
+    private int[] next;         // next vertex in the same component, going around in a circle
+    private int numComponents;
+    private IntFunction<String> names;          // vertex ids to actors
+    private ToIntFunction<String> ids;          // actors to vertex ids, or -1 if not in the graph
+
+    /**
+     * Finds the components of a compact graph straight from its neighbor arrays
+     *
+     * @param graph - graph of every actor
+     */
+    public ComponentIndex(CompactBaconGraph graph) {
+        this(graph.numVertices(), graph::actor, graph::indexOf);
+
+        int[] offsets = graph.offsets(), neighbors = graph.neighbors();
+        for (int v = 0; v < graph.numVertices(); v++) {
+            // every edge is stored both ways, so only the direction to a higher id is needed
+            for (int slot = offsets[v + 1] - 1; slot >= offsets[v] && neighbors[slot] > v; slot--) {
+                union(v, neighbors[slot]);
+            }
+        }
+    }
+
+    /**
+     * Finds the components of any actor graph, numbering its vertices in the order it lists them
+     *
+     * @param graph - graph of every actor
+     */
+    public ComponentIndex(Graph<String, ?> graph) {
+        this(vertexNames(graph));
+
+        for (String actor : graph.vertices()) {
+            int v = ids.applyAsInt(actor);
+            for (String coStar : graph.outNeighbors(actor)) {
+                union(v, ids.applyAsInt(coStar));
+            }
+        }
+    }
+
+    private ComponentIndex(List<String> vertices) {
+        this(vertices.size(), vertices::get, idsOf(vertices));
+    }
+
+    /**
+     * Every vertex starts out as a component of its own
+     */
+    private ComponentIndex(int numVertices, IntFunction<String> names, ToIntFunction<String> ids) {
+        this.names = names;
+        this.ids = ids;
+        parent = new int[0];
+        size = new int[0];
+        next = new int[0];
+        grow(numVertices);
+    }
+
+    /**
+     * @param actor - actor name
+     * @param other - actor name
+     * @return - whether there is a path between the two actors (false if either isn't in the graph)
+     */
+    public boolean connected(String actor, String other) {
+        int v = ids.applyAsInt(actor), w = ids.applyAsInt(other);
+        return v >= 0 && w >= 0 && root(v) == root(w);
+    }
+
+    /**
+     * @param actor - actor name
+     * @return - number of actors in the actor's component, including the actor, or 0 if the actor isn't in the graph
+     */
+    public int componentSize(String actor) {
+        int v = ids.applyAsInt(actor);
+        return v >= 0 ? size[root(v)] : 0;
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - id shared by every vertex in the same component (the id of one of them)
+     */
+    public int component(int v) {
+        return root(v);
+    }
+
+    /**
+     * @return - number of components, counting every isolated actor as one
+     */
+    public int numComponents() {
+        return numComponents;
+    }
+
+    /**
+     * @param actor - actor name
+     * @return - every actor in the actor's component, including the actor, or an empty list if it isn't in the graph
+     */
+    public List<String> members(String actor) {
+        List<String> members = new ArrayList<>();
+        int v = ids.applyAsInt(actor);
+        if (v < 0) return members;
+
+        int w = v;
+        do {
+            members.add(names.apply(w));
+            w = next[w];
+        } while (w != v);
+
+        return members;
+    }
+
+    /**
+     * @param actor - actor name
+     * @return - vertex ids of every actor in the actor's component, or an empty array if it isn't in the graph
+     */
+    public int[] memberIds(String actor) {
+        int v = ids.applyAsInt(actor);
+        if (v < 0) return new int[0];
+
+        int[] members = new int[size[root(v)]];
+        int count = 0, w = v;
+        do {
+            members[count++] = w;
+            w = next[w];
+        } while (w != v);
+
+        Arrays.sort(members);
+        return members;
+    }
+
+    /**
+     * Same set as GraphLib.missingVertices of the graph and the actor's BFS tree, without the BFS
+     *
+     * @param actor - actor name
+     * @return - every actor with no path to the actor
+     */
+    public List<String> unreachable(String actor) {
+        List<String> unreachable = new ArrayList<>();
+        int v = ids.applyAsInt(actor);
+        int root = v >= 0 ? root(v) : -1;
+
+        for (int w = 0; w < parent.length; w++) {
+            if (root(w) != root) unreachable.add(names.apply(w));
+        }
+        return unreachable;
+    }
+
+    /**
+     * Adds the new actors as components of their own, then merges the components joined by the new edges
+     *
+     * @param delta - the applied delta
+     * @param updated - the graph after it
+     */
+    @Override
+    public void update(GraphDelta delta, CompactBaconGraph updated) {
+        names = updated::actor;
+        ids = updated::indexOf;
+        grow(updated.numVertices());
+
+        for (int e = 0; e < delta.numInsertedEdges(); e++) {
+            union(delta.insertedFirst(e), delta.insertedSecond(e));
+        }
+    }
+
+    /**
+     * Extends the arrays to the number of vertices, each new vertex on its own
+     */
+    private void grow(int numVertices) {
+        int old = parent.length;
+        parent = Arrays.copyOf(parent, numVertices);
+        size = Arrays.copyOf(size, numVertices);
+        next = Arrays.copyOf(next, numVertices);
+
+        for (int v = old; v < numVertices; v++) {
+            parent[v] = v;
+            size[v] = 1;
+            next[v] = v;
+        }
+        numComponents += numVertices - old;
+    }
+
+    /**
+     * Merges the components of two vertices, hanging the smaller under the larger
+     */
+    private void union(int v, int w) {
+        int a = compress(v), b = compress(w);
+        if (a == b) return;
+
+        if (size[a] < size[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+        numComponents--;
+
+        // splice the two circles of members into one
+        int after = next[a];
+        next[a] = next[b];
+        next[b] = after;
+    }
+
+    /**
+     * Finds the root of a vertex, pointing every vertex on the way straight at it
+     */
+    private int compress(int v) {
+        int root = root(v);
+        while (parent[v] != root) {
+            int up = parent[v];
+            parent[v] = root;
+            v = up;
+        }
+        return root;
+    }
+
+    /**
+     * Finds the root of a vertex without changing anything, so lookups never write. Union by size keeps the walk
+     * logarithmic at worst
+     */
+    private int root(int v) {
+        while (parent[v] != v) v = parent[v];
+        return v;
+    }
+
+    private static List<String> vertexNames(Graph<String, ?> graph) {
+        List<String> vertices = new ArrayList<>();
+        for (String actor : graph.vertices()) vertices.add(actor);
+        return vertices;
+    }
+
+    private static ToIntFunction<String> idsOf(List<String> vertices) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < vertices.size(); v++) ids.put(vertices.get(v), v);
+        return actor -> ids.getOrDefault(actor, -1);
+    }
+}
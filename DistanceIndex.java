@@ -0,0 +1,497 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact distance between any two actors without a BFS, from a pruned landmark labeling of the compact graph. Every
+ * actor gets a label: a list of (hub, distance) pairs such that for any two connected actors some hub in both labels
+ * lies on a shortest path between them, so their distance is the smallest sum over the hubs they share. Labels are
+ * built by a BFS from every actor in order of degree, each one pruned wherever the labels so far already give the
+ * distance, which keeps labels short on graphs with a few very connected actors like this one. A query merges two
+ * sorted labels; a path is pulled on demand by stepping to whichever neighbor is one closer to the target
+ *
+ * The first BIT_PARALLEL_ROOTS roots are searched bit-parallel, as in the pruned landmark labeling paper: each takes up
+ * to 64 of its neighbors along, and every actor stores its distance to the root plus two 64-bit sets saying which of
+ * those neighbors are one closer and which are as close. That bounds every distance through the root or any of its
+ * neighbors at once, so these actors need no ordinary BFS and the rest are pruned much sooner
+ *
+ * Layout of a saved index (little-endian): a header of HEADER_INTS ints, then the label offsets and the hubs as ints,
+ * one unsigned byte per distance, one unsigned byte per bit-parallel distance, and two longs per bit-parallel distance
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class DistanceIndex {
+
+    private static final int MAGIC = 0x58444C50;    // "PLDX"
+    private static final int VERSION = 2;
+    private static final int HEADER_INTS = 7;
+    private static final int MAX_DISTANCE = 254;    // distances are stored as unsigned bytes, 255 meaning unreached
+    private static final int UNREACHED = Integer.MAX_VALUE / 2;
+    private static final int BIT_PARALLEL_ROOTS = 16;
+
+    private final CompactBaconGraph graph;
+    private final int[] labelOffsets;   // the label of v is entries labelOffsets[v] .. labelOffsets[v+1])
+    private final int[] hubs;           // rank of each entry's hub (rank 0 has the highest degree), increasing within a label
+    private final byte[] distances;     // distance from each entry's actor to its hub
+    private final int numBitParallel;   // bit-parallel roots, each with a distance and two sets per actor
+    private final byte[] bitParallelDistances;  // distance from v to bit-parallel root i at v*numBitParallel + i, or 255
+    private final long[] bitParallelSets;       // at twice that: neighbors of the root one closer to v, then as close
+    private final long buildMillis;
+
+    /**
+     * Builds the labels with a pruned BFS from every actor, highest degree first
+     *
+     * @param graph - graph to index
+     * @param listener - told about progress as actors finish (may be null)
+     */
+    public DistanceIndex(CompactBaconGraph graph, ParallelSeparationEngine.ProgressListener listener) {
+        Metrics.Stage stage = Metrics.stage("build distance index");
+        long start = System.nanoTime();
+        int numVertices = graph.numVertices();
+        int[] offsets = graph.offsets(), neighbors = graph.neighbors();
+
+        // highest degree first, ties by vertex id
+        long[] keys = new long[numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            keys[v] = (long) (Integer.MAX_VALUE - graph.degree(v)) << 32 | v;
+        }
+        Arrays.sort(keys);
+
+        // bit-parallel roots first; they and the neighbors they take along get no ordinary BFS
+        boolean[] used = new boolean[numVertices];
+        numBitParallel = BIT_PARALLEL_ROOTS;
+        bitParallelDistances = new byte[numVertices * numBitParallel];
+        bitParallelSets = new long[2 * bitParallelDistances.length];
+        Arrays.fill(bitParallelDistances, (byte) 0xFF);
+        int next = 0;
+        for (int i = 0; i < numBitParallel; i++) {
+            while (next < numVertices && used[(int) keys[next]]) next++;
+            if (next == numVertices) break;
+            bitParallelBFS(graph, keys, used, (int) keys[next], i);
+        }
+
+        // labels grow one entry at a time while building
+        int[][] labelHubs = new int[numVertices][];
+        byte[][] labelDistances = new byte[numVertices][];
+        int[] labelSizes = new int[numVertices];
+
+        int[] rootDistance = new int[numVertices];     // distance from the root to each hub in its label, by hub rank
+        int[] distance = new int[numVertices];          // BFS distance from the root, or -1 if not reached
+        int[] queue = new int[numVertices];
+        Arrays.fill(rootDistance, UNREACHED);
+        Arrays.fill(distance, -1);
+        int step = Math.max(1, numVertices / 100);
+
+        for (int rank = 0; rank < numVertices; rank++) {
+            int root = (int) keys[rank];
+            if (used[root]) {
+                if (listener != null && ((rank + 1) % step == 0 || rank + 1 == numVertices)) listener.progress(rank + 1, numVertices);
+                continue;
+            }
+
+            // the root's label so far, indexed by hub, so checking any actor against it is one pass over their label
+            for (int k = 0; k < labelSizes[root]; k++) {
+                rootDistance[labelHubs[root][k]] = labelDistances[root][k] & 0xFF;
+            }
+
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            distance[root] = 0;
+
+            while (head < tail) {
+                int current = queue[head++];
+                int d = distance[current];
+
+                // prune: the bit-parallel roots or the hubs already indexed give the distance from the root to this actor
+                if (shortestThroughBitParallel(root, current, d + 1) <= d) continue;
+                if (shortestThroughHubs(rootDistance, labelHubs[current], labelDistances[current], labelSizes[current]) <= d) continue;
+
+                if (d > MAX_DISTANCE) throw new IllegalStateException("Distances over " + MAX_DISTANCE + " don't fit the index");
+                addEntry(labelHubs, labelDistances, labelSizes, current, rank, d);
+
+                for (int slot = offsets[current]; slot < offsets[current + 1]; slot++) {
+                    int neighbor = neighbors[slot];
+                    if (distance[neighbor] < 0) {
+                        distance[neighbor] = d + 1;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+
+            // clear only what this BFS touched
+            for (int i = 0; i < tail; i++) {
+                distance[queue[i]] = -1;
+            }
+            for (int k = 0; k < labelSizes[root]; k++) {
+                rootDistance[labelHubs[root][k]] = UNREACHED;
+            }
+
+            if (listener != null && ((rank + 1) % step == 0 || rank + 1 == numVertices)) listener.progress(rank + 1, numVertices);
+        }
+
+        // pack the labels back to back
+        this.graph = graph;
+        labelOffsets = new int[numVertices + 1];
+        for (int v = 0; v < numVertices; v++) {
+            labelOffsets[v + 1] = Math.addExact(labelOffsets[v], labelSizes[v]);
+        }
+        hubs = new int[labelOffsets[numVertices]];
+        distances = new byte[labelOffsets[numVertices]];
+        for (int v = 0; v < numVertices; v++) {
+            if (labelSizes[v] == 0) continue;
+            System.arraycopy(labelHubs[v], 0, hubs, labelOffsets[v], labelSizes[v]);
+            System.arraycopy(labelDistances[v], 0, distances, labelOffsets[v], labelSizes[v]);
+        }
+
+        buildMillis = (System.nanoTime() - start) / 1_000_000;
+        Metrics.end(stage, numVertices, hubs.length);
+    }
+
+    /**
+     * Index read back by load
+     */
+    private DistanceIndex(CompactBaconGraph graph, int[] labelOffsets, int[] hubs, byte[] distances, int numBitParallel,
+                          byte[] bitParallelDistances, long[] bitParallelSets, long buildMillis) {
+        this.graph = graph;
+        this.labelOffsets = labelOffsets;
+        this.hubs = hubs;
+        this.distances = distances;
+        this.numBitParallel = numBitParallel;
+        this.bitParallelDistances = bitParallelDistances;
+        this.bitParallelSets = bitParallelSets;
+        this.buildMillis = buildMillis;
+    }
+
+    /**
+     * @param u - vertex id
+     * @param v - vertex id
+     * @return - the number of edges on a shortest path between u and v, or -1 if they aren't connected
+     */
+    public int distance(int u, int v) {
+        long start = Metrics.start();
+        int distance = shortestDistance(u, v);
+        Metrics.query("distance index", start);
+        return distance;
+    }
+
+    /**
+     * @param actor1 - actor name
+     * @param actor2 - actor name
+     * @return - the Bacon number of one actor with the other as the center, or -1 if they aren't connected or either
+     * isn't in the graph
+     */
+    public int distance(String actor1, String actor2) {
+        int u = graph.indexOf(actor1), v = graph.indexOf(actor2);
+        return u >= 0 && v >= 0 ? distance(u, v) : -1;
+    }
+
+    /**
+     * A shortest path between two actors, found one step at a time by moving to a neighbor one closer to the target
+     *
+     * @param actor - actor the path starts at
+     * @param center - actor the path ends at
+     * @return - the path, with the movies along it, or an empty path if they aren't connected
+     */
+    public GraphPath<String, List<String>> path(String actor, String center) {
+        long start = Metrics.start();
+        List<String> vertices = new ArrayList<>();
+        List<List<String>> labels = new ArrayList<>();
+
+        int current = graph.indexOf(actor), target = graph.indexOf(center);
+        int remaining = current >= 0 && target >= 0 ? shortestDistance(current, target) : -1;
+        if (remaining >= 0) vertices.add(graph.actor(current));
+
+        int[] offsets = graph.offsets(), neighbors = graph.neighbors();
+        while (remaining > 0) {
+            int next = -1;
+            for (int slot = offsets[current]; slot < offsets[current + 1] && next < 0; slot++) {
+                if (shortestDistance(neighbors[slot], target) == remaining - 1) {
+                    labels.add(graph.label(slot));
+                    next = neighbors[slot];
+                }
+            }
+
+            // exact labels always have a next step, so missing one means they don't describe this graph
+            if (next < 0) throw new IllegalStateException("No neighbor of " + graph.actor(current) + " is " + (remaining - 1) + " from " + center);
+            current = next;
+            vertices.add(graph.actor(current));
+            remaining--;
+        }
+
+        Metrics.query("distance index path", start);
+        return new GraphPath<>(vertices, labels);
+    }
+
+    /**
+     * @return - whether the index belongs to this graph, i.e. nothing has been added since it was built
+     */
+    public boolean covers(CompactBaconGraph graph) {
+        return this.graph == graph;
+    }
+
+    /**
+     * @return - total number of (hub, distance) entries over every label
+     */
+    public long numEntries() {
+        return hubs.length;
+    }
+
+    public long buildMillis() {
+        return buildMillis;
+    }
+
+    /**
+     * Rough number of bytes held by the labels
+     */
+    public long estimatedBytes() {
+        return 16 + 4L * labelOffsets.length + 16 + 4L * hubs.length + 16 + distances.length
+                + 16 + bitParallelDistances.length + 16 + 8L * bitParallelSets.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Distance index: %d label entries (%.1f per actor), %.1f MB, built in %d ms", numEntries(),
+                (double) numEntries() / Math.max(1, graph.numVertices()), estimatedBytes() / 1048576.0, buildMillis);
+    }
+
+    /**
+     * Saves the labels next to the graph's snapshot, replacing the file only once all of it has been written
+     *
+     * @param pathname - file to write
+     * @throws IOException - if the file can't be written
+     */
+    public void write(String pathname) throws IOException {
+        Path target = Paths.get(pathname);
+        Path temp = Paths.get(pathname + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+            // header: format, the graph the labels belong to, then the number of entries
+            int[] header = {MAGIC, VERSION, graph.numVertices(), graph.numEdges(), hubs.length, numBitParallel,
+                    (int) Math.min(buildMillis, Integer.MAX_VALUE)};
+            GraphSnapshot.writeInts(channel, buffer, header);
+            GraphSnapshot.writeInts(channel, buffer, labelOffsets);
+            GraphSnapshot.writeInts(channel, buffer, hubs);
+            GraphSnapshot.writeBytes(channel, buffer, new byte[][] {distances, bitParallelDistances});
+            writeLongs(channel, buffer, bitParallelSets);
+            GraphSnapshot.flush(channel, buffer);
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads back an index saved by write
+     *
+     * @param graph - the graph the index was built from
+     * @param pathname - file to read
+     * @return - the index
+     * @throws IOException - if the file can't be read, isn't an index this version understands, or was built from a
+     * different graph
+     */
+    public static DistanceIndex load(CompactBaconGraph graph, String pathname) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < 4L * HEADER_INTS) throw new IOException(pathname + " is too short to be a distance index");
+
+            // check the header before trusting any of the lengths in it
+            int[] header = GraphSnapshot.readInts(channel, 0, HEADER_INTS);
+            if (header[0] != MAGIC) throw new IOException(pathname + " is not a distance index");
+            if (header[1] != VERSION) throw new IOException(pathname + " has unsupported distance index version " + header[1]);
+            if (header[2] != graph.numVertices() || header[3] != graph.numEdges()) throw new IOException(pathname + " was built for a different graph");
+
+            int numVertices = header[2], numEntries = header[4], numBitParallel = header[5];
+            long numBitParallelEntries = (long) numVertices * numBitParallel;
+            if (numEntries < 0 || numBitParallel < 0 || numBitParallelEntries > Integer.MAX_VALUE / 2
+                    || fileSize != 4L * (HEADER_INTS + (numVertices + 1) + numEntries) + numEntries + 17 * numBitParallelEntries) {
+                throw new IOException(pathname + " is truncated or corrupt");
+            }
+
+            long position = 4L * HEADER_INTS;
+            int[] labelOffsets = GraphSnapshot.readInts(channel, position, numVertices + 1);
+            position += 4L * (numVertices + 1);
+            int[] hubs = GraphSnapshot.readInts(channel, position, numEntries);
+            position += 4L * numEntries;
+            byte[] distances = new byte[numEntries];
+            GraphSnapshot.map(channel, position, numEntries).get(distances);
+            position += numEntries;
+            byte[] bitParallelDistances = new byte[(int) numBitParallelEntries];
+            GraphSnapshot.map(channel, position, bitParallelDistances.length).get(bitParallelDistances);
+            position += bitParallelDistances.length;
+            long[] bitParallelSets = new long[2 * bitParallelDistances.length];
+            GraphSnapshot.map(channel, position, 8L * bitParallelSets.length).asLongBuffer().get(bitParallelSets);
+
+            return new DistanceIndex(graph, labelOffsets, hubs, distances, numBitParallel, bitParallelDistances,
+                    bitParallelSets, header[6]);
+        }
+    }
+
+    /**
+     * Bounds the distance with the bit-parallel roots, then merges the two labels, which are both sorted by hub, to find
+     * the hub they share with the smallest total distance
+     *
+     * @return - the distance between u and v, or -1 if they aren't connected
+     */
+    private int shortestDistance(int u, int v) {
+        int best = shortestThroughBitParallel(u, v, UNREACHED);
+        int i = labelOffsets[u], iEnd = labelOffsets[u + 1];
+        int j = labelOffsets[v], jEnd = labelOffsets[v + 1];
+
+        while (i < iEnd && j < jEnd) {
+            if (hubs[i] < hubs[j]) i++;
+            else if (hubs[i] > hubs[j]) j++;
+            else best = Math.min(best, (distances[i++] & 0xFF) + (distances[j++] & 0xFF));
+        }
+        return best < UNREACHED ? best : -1;
+    }
+
+    /**
+     * Shortest distance between u and v through any bit-parallel root or the neighbors it took along: through the root
+     * it's the sum of their distances to it, less 2 if some neighbor is one closer to both, or 1 if some neighbor is one
+     * closer to one and as close to the other
+     *
+     * @param best - shortest distance known so far; roots that can't beat it are skipped
+     * @return - the shorter of best and the distance through the bit-parallel roots
+     */
+    private int shortestThroughBitParallel(int u, int v, int best) {
+        int iu = u * numBitParallel, iv = v * numBitParallel;
+        for (int i = 0; i < numBitParallel; i++, iu++, iv++) {
+            int du = bitParallelDistances[iu] & 0xFF, dv = bitParallelDistances[iv] & 0xFF;
+            if (du > MAX_DISTANCE || dv > MAX_DISTANCE || du + dv - 2 >= best) continue;
+
+            long closerU = bitParallelSets[2 * iu], sameU = bitParallelSets[2 * iu + 1];
+            long closerV = bitParallelSets[2 * iv], sameV = bitParallelSets[2 * iv + 1];
+            int through = du + dv;
+            if ((closerU & closerV) != 0) through -= 2;
+            else if ((closerU & sameV | sameU & closerV) != 0) through -= 1;
+            best = Math.min(best, through);
+        }
+        return best;
+    }
+
+    /**
+     * BFS from one bit-parallel root, which takes up to 64 of its unused neighbors along, highest degree first. Level by
+     * level, an actor's closer set is the union of its parents' and its same set the union of its parents' same sets and
+     * its siblings' closer sets, where a sibling is a neighbor at the same distance from the root
+     *
+     * @param keys - vertex ids by rank, in the low 32 bits
+     * @param used - actors that are already bit-parallel roots or taken along; updated
+     * @param root - vertex id of the root
+     * @param i - index of the root among the bit-parallel roots
+     */
+    private void bitParallelBFS(CompactBaconGraph graph, long[] keys, boolean[] used, int root, int i) {
+        int numVertices = graph.numVertices();
+        int[] offsets = graph.offsets(), neighbors = graph.neighbors();
+        int[] distance = new int[numVertices];
+        int[] queue = new int[numVertices];
+        long[] closer = new long[numVertices], same = new long[numVertices];
+        Arrays.fill(distance, -1);
+
+        int tail = 0;
+        queue[tail++] = root;
+        distance[root] = 0;
+        used[root] = true;
+
+        // the root's unused neighbors in rank order, i.e. highest degree first
+        long[] candidates = new long[offsets[root + 1] - offsets[root]];
+        int numCandidates = 0;
+        for (int slot = offsets[root]; slot < offsets[root + 1]; slot++) {
+            int neighbor = neighbors[slot];
+            if (!used[neighbor]) candidates[numCandidates++] = (long) (Integer.MAX_VALUE - graph.degree(neighbor)) << 32 | neighbor;
+        }
+        Arrays.sort(candidates, 0, numCandidates);
+        for (int k = 0; k < Math.min(numCandidates, Long.SIZE); k++) {
+            int neighbor = (int) candidates[k];
+            if (used[neighbor]) continue;    // a neighbor listed twice
+            used[neighbor] = true;
+            distance[neighbor] = 1;
+            closer[neighbor] = 1L << k;
+            queue[tail++] = neighbor;
+        }
+
+        for (int levelStart = 0, levelEnd = 1, d = 0; levelStart < levelEnd; levelStart = levelEnd, levelEnd = tail, d++) {
+            if (d >= MAX_DISTANCE) throw new IllegalStateException("Distances over " + MAX_DISTANCE + " don't fit the index");
+
+            // closer sets of this level are final, so siblings and children can take them right away
+            for (int q = levelStart; q < levelEnd; q++) {
+                int v = queue[q];
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    int neighbor = neighbors[slot];
+                    if (distance[neighbor] == d) same[v] |= closer[neighbor];
+                    else if (distance[neighbor] < 0 || distance[neighbor] == d + 1) {
+                        if (distance[neighbor] < 0) {
+                            distance[neighbor] = d + 1;
+                            queue[tail++] = neighbor;
+                        }
+                        closer[neighbor] |= closer[v];
+                    }
+                }
+            }
+
+            // same sets of this level are final only now
+            for (int q = levelStart; q < levelEnd; q++) {
+                int v = queue[q];
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    if (distance[neighbors[slot]] == d + 1) same[neighbors[slot]] |= same[v];
+                }
+            }
+        }
+
+        for (int q = 0; q < tail; q++) {
+            int v = queue[q], entry = v * numBitParallel + i;
+            bitParallelDistances[entry] = (byte) distance[v];
+            bitParallelSets[2 * entry] = closer[v];
+            bitParallelSets[2 * entry + 1] = same[v];
+        }
+    }
+
+    /**
+     * Like GraphSnapshot.writeInts, for longs
+     */
+    private static void writeLongs(FileChannel channel, ByteBuffer buffer, long[] values) throws IOException {
+        for (long value : values) {
+            if (buffer.remaining() < Long.BYTES) GraphSnapshot.flush(channel, buffer);
+            buffer.putLong(value);
+        }
+    }
+
+    /**
+     * @return - the shortest distance from the root to the actor through any hub in both labels, or UNREACHED
+     */
+    private static int shortestThroughHubs(int[] rootDistance, int[] labelHubs, byte[] labelDistances, int size) {
+        int best = UNREACHED;
+        for (int k = 0; k < size; k++) {
+            best = Math.min(best, rootDistance[labelHubs[k]] + (labelDistances[k] & 0xFF));
+        }
+        return best;
+    }
+
+    /**
+     * Appends (hub, distance) to the label of v, growing it when needed
+     */
+    private static void addEntry(int[][] labelHubs, byte[][] labelDistances, int[] labelSizes, int v, int hub, int distance) {
+        int size = labelSizes[v];
+        if (labelHubs[v] == null) {
+            labelHubs[v] = new int[4];
+            labelDistances[v] = new byte[4];
+        }
+        else if (size == labelHubs[v].length) {
+            labelHubs[v] = Arrays.copyOf(labelHubs[v], size * 2);
+            labelDistances[v] = Arrays.copyOf(labelDistances[v], size * 2);
+        }
+        labelHubs[v][size] = hub;
+        labelDistances[v][size] = (byte) distance;
+        labelSizes[v]++;
+    }
+}
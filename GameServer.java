@@ -0,0 +1,77 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the game to many players at once over a local socket, one GameSession per connection, all reading the same
+ * GameWorld. The protocol is the console game's: the server sends the commands and a "<center> game >" prompt, and
+ * the client sends one command per line until q or until it hangs up. Sessions only read the world, so they can't
+ * add files or compute the exact separations, and the world is frozen so nothing else can either
+ *
+ * Try it with: java GameImplementation -server=4242, then nc localhost 4242
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class GameServer {
+
+    private final GameWorld world;
+    private final int port;
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    /**
+     * @param world - the loaded game every session shares
+     * @param port - local port to listen on (0 picks a free one)
+     */
+    public GameServer(GameWorld world, int port) {
+        this.world = world;
+        this.port = port;
+        world.freeze();
+    }
+
+    /**
+     * Accepts connections until the process is stopped, handing each one to its own thread. Sessions spend their time
+     * in BFS work or waiting on their client, so a thread per session keeps every core busy without a queue
+     */
+    public void serve() throws IOException {
+        ExecutorService pool = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "bacon-session-" + sessions.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Serving the game on port " + server.getLocalPort());
+
+            while (true) {
+                Socket socket = server.accept();
+                pool.execute(() -> play(socket));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one session over a connection, closing it when the player quits or hangs up
+     */
+    private void play(Socket socket) {
+        try (socket;
+             BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream output = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, StandardCharsets.UTF_8)) {
+            // every answer goes out in one write, flushed when the session waits for the next command
+            socket.setTcpNoDelay(true);
+            new GameSession(world, input, output, false, true).run();
+        } catch (Exception e) {
+            System.err.println("Session from " + socket.getRemoteSocketAddress() + " ended: " + e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.BufferedReader;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * One player's game: reads commands line by line and answers them from the shared GameWorld. Each session keeps its
+ * own center of the universe, so many can run against the same world at once
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class GameSession {
+
+    private final GameWorld world;
+    private final BufferedReader input;
+    private final PrintStream output;
+    private final boolean canUpdate;        // whether i and x may change the shared world
+    private final boolean prompts;          // whether to show the commands and a prompt before every command
+
+    // initializing the center of the universe as Kevin Bacon
+    private String centerOfUniverse = "Kevin Bacon";
+    private SeparationStats centerStats;
+
+    /**
+     * @param world - the loaded game everything is answered from
+     * @param input - where commands come from, one per line
+     * @param output - where answers go
+     * @param canUpdate - whether this session may add files with i and compute exact separations with x
+     * @param prompts - whether to print the commands and a prompt before every command (false for batch input)
+     */
+    public GameSession(GameWorld world, BufferedReader input, PrintStream output, boolean canUpdate, boolean prompts) {
+        this.world = world;
+        this.input = input;
+        this.output = output;
+        this.canUpdate = canUpdate;
+        this.prompts = prompts;
+    }
+
+    /**
+     * Answers commands until q or the end of the input
+     */
+    public void run() throws Exception {
+        // printing out the possible commands for the game
+        if (prompts) output.println("Commands:\n" +
+                "u-<name>: make <name> center of the universe\n" +
+                "p-<name>: find shortest path from actor to center\n" +
+                "n: number of actors connected to center of universe\n" +
+                "s: find average separation for center of universe\n" +
+                "d[-<k>]: give top k (default 25) actors sorted by in degree (max to min) in the original map\n" +
+                "a[-<k>]: give top k (default 25) actors sorted by average separation (min to max)\n" +
+                (canUpdate ? "x: compare the estimated a leaderboard with the exact one (with -estimate=<pivots>)\n" : "") +
+                "b-<actor>|<actor>: find the number and shortest path between any two actors (with -distances)\n" +
+                "c: show BFS cache hits, misses and evictions\n" +
+                (canUpdate ? "i-<directory>: add the actors, movies and movie-actors files in <directory> to the graph\n" : "") +
+                "stats: show load stage timings, query latencies, BFS work and garbage collection (with -metrics)\n" +
+                "q: quit the game\n");
+
+        // while the user input is not q (to quit the game)...
+        boolean quit = false;
+        while (!quit) {
+
+            // print out whose game it is
+            if (prompts) output.println(centerOfUniverse + " game >");
+
+            output.flush();
+            String line = input.readLine();
+            if (line == null) break;
+            quit = handle(line);
+        }
+    }
+
+    /**
+     * Answers one command
+     *
+     * @param line - the command
+     * @return - whether the command was q
+     */
+    public boolean handle(String line) throws Exception {
+        Graph<String, List<String>> baconGraph = world.graph();
+
+        // create string array using the input
+        String[] items = line.split("-");
+
+        // if you're creating a new center of the universe...
+        if (Objects.equals(items[0], "u") && items.length > 1){
+
+            // the actor is whatever is after the "-"
+            String centerActor = items[1];
+
+            // as long as the bacon graph has the actor...
+            if (baconGraph.hasVertex(centerActor)){
+
+                // make the center of the universe the actor given; its BFS is only run once s asks for its stats
+                centerOfUniverse = centerActor;
+                centerStats = null;
+
+                output.println(centerOfUniverse + " is now the center of the universe\n");
+
+            }
+            // otherwise, print out that there is no actor with the given name
+            else {
+                output.println("There is no actor with the given name\n");
+            }
+        }
+
+        // if you're finding a path to the center...
+        else if (Objects.equals(items[0], "p") && items.length > 1){
+
+            // the actor is whatever is after the "-"
+            String actor = items[1];
+
+            // the component index tells whether there is any path without searching for it
+            if (baconGraph.hasVertex(actor) && !world.components().connected(actor, centerOfUniverse)){
+                output.println(actor + " is not in the path tree -- there is no connection\n");
+            }
+
+            // as long as the bacon graph has the actor...
+            else if (baconGraph.hasVertex(actor)){
+
+                // find the path to the center and get the bacon number
+                GraphPath<String, List<String>> path = world.path(actor, centerOfUniverse);
+                int baconNumber = path.length();
+                output.println(actor + "'s number is: " + baconNumber);
+
+                // print out the relationships between actors using the labels along the path
+                for (int i = 0; i < baconNumber; i++){
+                    String actor1 = path.vertices().get(i);
+                    String actor2 = path.vertices().get(i + 1);
+
+                    output.println(actor1 + " appeared in: " + path.labels().get(i) + " with " + actor2 + "\n");
+                }
+            }
+            // otherwise, print out that there is no such actor in the graph
+            else {
+                output.println("There is no actor with the given name\n");
+            }
+        }
+
+        // if you're finding the number of connected actors...
+        else if (Objects.equals(items[0], "n") && items.length < 2){
+
+            // find out the number of connected actors and total actors
+            int connectedActors = world.components().componentSize(centerOfUniverse) - 1;
+            int totalActors = baconGraph.numVertices() - 1;
+
+            output.println(centerOfUniverse + " is connected to " + connectedActors + " out of " + totalActors + " possible actors\n");
+        }
+
+        // if you're trying to find the average separation for the center...
+        else if (Objects.equals(items[0], "s") && items.length < 2){
+
+            // calculate the average separation from the BFS level counts
+            if (centerStats == null) centerStats = world.centerStats(centerOfUniverse);
+            double averageSeparation = centerStats.averageSeparation();
+
+            output.println(centerOfUniverse + "'s average separation is: " + averageSeparation);
+            output.println("Farthest connected actor is " + centerStats.eccentricity() + " away; actors at each distance: " + centerStats + "\n");
+        }
+
+        // if you're wanting the top k best actors to be Bacons, based off of inDegree...
+        else if (Objects.equals(items[0], "d") && leaderboardSize(items) > 0){
+            List<String> inDegreeTop = world.mostCoStars(leaderboardSize(items));
+            output.println("The best actors to be Bacons, sorted by in degree (max to min), are: " + inDegreeTop + "\n");
+        }
+
+        // if you're wanting the top 25 best actors to be Bacons, based off of average separation...
+        else if (Objects.equals(items[0], "a") && leaderboardSize(items) > 0){
+            SeparationEstimate separationEstimate = world.separationEstimate();
+
+            if (separationEstimate != null) {
+                // show each estimate with its 95% confidence interval
+                CompactBaconGraph compactGraph = (CompactBaconGraph) baconGraph;
+                List<String> estimates = new ArrayList<>();
+                for (String actor : separationEstimate.top(leaderboardSize(items))) {
+                    int v = compactGraph.indexOf(actor);
+                    estimates.add(String.format("%s %.3f +/- %.3f", actor, separationEstimate.averageSeparation(v), separationEstimate.halfWidth(v)));
+                }
+                output.println("The best actors to be Bacons, sorted by average separation estimated from "
+                        + separationEstimate.numPivots() + " actors (min to max), are: " + estimates + "\n");
+            }
+            else {
+                List<String> averageSeparationTop = world.lowestSeparations(leaderboardSize(items));
+                output.println("The best actors to be Bacons, sorted by average separation (min to max), are: " + averageSeparationTop + "\n");
+            }
+        }
+
+        // if you're wanting to see how far the estimated leaderboard is from the exact one...
+        else if (Objects.equals(items[0], "x") && items.length < 2 && canUpdate){
+            String comparison = world.compareEstimate();
+            if (comparison == null) output.println("The average separations are exact; start the game with -estimate=<pivots> to estimate them\n");
+            else output.println(comparison + "\n");
+        }
+
+        // if you're finding the path between two actors, neither of them the center...
+        else if (Objects.equals(items[0], "b") && items.length > 1){
+
+            // the actors are everything after the first "-", split at the "|", since names may have dashes of their own
+            String[] actors = line.substring(line.indexOf('-') + 1).split("\\|");
+
+            if (!world.indexesDistances()) {
+                output.println("Start the game with -distances to find the path between any two actors\n");
+            }
+            else if (actors.length != 2) {
+                output.println("Not a valid input\n");
+            }
+            else if (!baconGraph.hasVertex(actors[0]) || !baconGraph.hasVertex(actors[1])) {
+                output.println("There is no actor with the given name\n");
+            }
+            else {
+                // the distance index gives the path without a BFS, unless it is being rebuilt
+                GraphPath<String, List<String>> path = world.pathBetween(actors[0], actors[1]);
+
+                if (!path.exists()) output.println(actors[0] + " and " + actors[1] + " are not connected\n");
+                else {
+                    output.println(actors[0] + "'s number with " + actors[1] + " as the center is: " + path.length());
+                    for (int i = 0; i < path.length(); i++){
+                        output.println(path.vertices().get(i) + " appeared in: " + path.labels().get(i) + " with " + path.vertices().get(i + 1) + "\n");
+                    }
+                }
+            }
+        }
+
+        // if you're wanting to see how well the BFS cache is doing...
+        else if (Objects.equals(items[0], "c") && items.length < 2){
+            if (world.bfsCache() != null) output.println(world.bfsCache() + "\n");
+            else output.println("BFS results are only cached for the compact graph\n");
+        }
+
+        // if you're adding new actors, movies and casts to the graph...
+        else if (Objects.equals(items[0], "i") && items.length > 1 && canUpdate){
+
+            // the directory is everything after the first "-", since it may have dashes of its own
+            output.println(world.addFiles(line.substring(line.indexOf('-') + 1)) + "\n");
+            centerStats = null;
+        }
+
+        // if you're wanting to see where the time went...
+        else if (Objects.equals(items[0], "stats") && items.length < 2){
+            output.println(Metrics.report());
+            if (!Metrics.enabled()) output.println("Start the game with -metrics (or turn it on over JMX) to record anything");
+            output.println();
+        }
+
+        // if you want to quit the game...
+        else if (Objects.equals(items[0], "q") && items.length < 2){
+            output.println("Game quit");
+            return true;
+        }
+
+        // otherwise the input was invalid
+        else output.println("Not a valid input\n");
+
+        return false;
+    }
+
+    /**
+     * Number of actors a leaderboard command asks for: 25 for "d" or "a" alone, or k for "d-k" or "a-k"
+     *
+     * @param items - the command split on "-"
+     * @return - the number of actors, or -1 if the command is malformed
+     */
+    private static int leaderboardSize(String[] items) {
+        if (items.length == 1) return 25;
+        if (items.length > 2) return -1;
+
+        try {
+            return Integer.parseInt(items[1].trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
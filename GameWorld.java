@@ -0,0 +1,397 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Everything the game loads once and every session shares: the graph, its components, the BFS cache and the average
+ * separations behind the a leaderboard. Only the console session changes it, by adding files with i or asking for the
+ * exact separations with x. Once freeze() is called, as GameServer does before its first session, both are refused and
+ * nothing changes anymore, so any number of sessions can query it at once. The fields i and x replace are volatile so
+ * the console's own reads always see the latest ones
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class GameWorld {
+
+    private static final String ACTORS = "PS4/actors.txt";
+    private static final String MOVIES = "PS4/movies.txt";
+    private static final String MOVIE_ACTORS = "PS4/movie-actors.txt";
+    private static final String SNAPSHOT = "PS4/bacon-graph.snapshot";
+    private static final String DISTANCE_INDEX = "PS4/bacon-graph.distances";
+    private static final long DEFAULT_CACHE_MB = 256;
+
+    /**
+     * The center every leaderboard is computed for, whatever center a session picks
+     */
+    public static final String LEADERBOARD_CENTER = "Kevin Bacon";
+
+    private final BaconGraph bacon = new BaconGraph();
+    private volatile Graph<String, List<String>> baconGraph;
+    private final ComponentIndex components;
+    private final BFSCache bfsCache;                    // null unless the graph is a CompactBaconGraph
+    private final long cacheBytes;
+    private final boolean indexDistances;               // whether any two actors' distance is looked up in a DistanceIndex
+    private volatile DistanceIndex distanceIndex;       // null while it's rebuilt after an i
+
+    // storing the average separation of every actor connected to Kevin Bacon, for the a leaderboard
+    private volatile SeparationIndex separationIndex;
+    private volatile SeparationEstimate separationEstimate;
+    private Map<String, Double> averageSeparationMap;
+    private Iterable<String> baconConnected;            // note: only using vertices connected to Bacon as described in the pset description
+    private volatile List<String> lowestSeparations = List.of(); // longest leaderboard the pruned search has found so far
+
+    // the compact graph becomes live on the first i command
+    private LiveBaconGraph liveGraph;
+    private volatile boolean frozen;                    // whether i and x are refused because sessions share the world
+
+    /**
+     * Loads the graph and everything derived from it
+     *
+     * @param args - the game's command line: -bipartite, -cache=<megabytes>, -estimate=<pivots>, -distances
+     */
+    public GameWorld(String[] args) throws Exception {
+        // "-bipartite" keeps actors and movies as separate vertices instead of expanding every cast into co-star edges
+        boolean bipartite = Arrays.asList(args).contains("-bipartite");
+
+        // "-distances" labels the compact graph so the distance between any two actors takes no BFS
+        indexDistances = Arrays.asList(args).contains("-distances");
+
+        // "-cache=<megabytes>" sets the memory budget for BFS results of recent centers, and "-estimate=<pivots>" estimates
+        // the average separations from BFS out of that many random actors instead of out of every actor
+        long cacheBytes = DEFAULT_CACHE_MB << 20;
+        int estimatePivots = 0;
+        for (String arg : args) {
+            if (arg.startsWith("-cache=")) cacheBytes = Long.parseLong(arg.substring("-cache=".length())) << 20;
+            if (arg.startsWith("-estimate=")) estimatePivots = Integer.parseInt(arg.substring("-estimate=".length()));
+        }
+        this.cacheBytes = cacheBytes;
+
+        // load the compact graph straight from its snapshot when the snapshot is newer than every text file
+        if (!bipartite && GraphSnapshot.isNewerThan(SNAPSHOT, ACTORS, MOVIES, MOVIE_ACTORS)) {
+            try {
+                baconGraph = bacon.loadSnapshot(SNAPSHOT);
+            } catch (IOException e) {
+                System.err.println("Cannot read snapshot, rebuilding the graph: " + e.getMessage());
+            }
+        }
+
+        // otherwise, creating the graph of actors from the text files
+        if (baconGraph == null) {
+            if (bipartite) {
+                Map<Integer, String> actorMap = bacon.createActorMap(ACTORS);
+                Map<Integer, String> movieMap = bacon.createMovieMap(MOVIES);
+                Map<String, List<String>> movieActorMap = bacon.createMovieActorMap(actorMap, movieMap, MOVIE_ACTORS, Runtime.getRuntime().availableProcessors());
+                baconGraph = bacon.createBipartiteBaconGraph(actorMap, movieActorMap);
+            }
+            else {
+                // streaming the casts straight into the graph, without a movie -> cast map, and packing it on every core
+                CompactBaconGraph compactGraph = bacon.createCompactBaconGraph(ACTORS, MOVIES, MOVIE_ACTORS, Runtime.getRuntime().availableProcessors());
+                baconGraph = compactGraph;
+
+                // save the graph so the next start can skip all of this
+                try {
+                    bacon.writeSnapshot(compactGraph, SNAPSHOT);
+                } catch (IOException e) {
+                    System.err.println("Cannot write snapshot: " + e.getMessage());
+                }
+            }
+        }
+
+        // finding who is connected to whom once, so no command needs a BFS just for that
+        components = baconGraph instanceof CompactBaconGraph
+                ? new ComponentIndex((CompactBaconGraph) baconGraph)
+                : new ComponentIndex(baconGraph);
+
+        // BFS results of recent centers are kept as compact arrays when the graph is a CompactBaconGraph
+        bfsCache = baconGraph instanceof CompactBaconGraph ? new BFSCache((CompactBaconGraph) baconGraph, cacheBytes) : null;
+
+        // the compact graph finds the leaderboard when asked, with BFS runs cut short, unless it's estimating every separation
+        if (baconGraph instanceof CompactBaconGraph) {
+            if (estimatePivots > 0) separationEstimate = estimateSeparations(estimatePivots);
+            if (indexDistances) distanceIndex = loadDistanceIndex();
+        }
+        else {
+            averageSeparationMap = new AverageSeparationCalc().createAverageSeparationMap(baconGraph, components, LEADERBOARD_CENTER);
+            baconConnected = components.members(LEADERBOARD_CENTER);
+        }
+    }
+
+    /**
+     * Refuses i and x from now on, so the world never changes again and sessions on other threads can share it
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * @return - the graph of every actor, including everything added so far
+     */
+    public Graph<String, List<String>> graph() {
+        return baconGraph;
+    }
+
+    public ComponentIndex components() {
+        return components;
+    }
+
+    /**
+     * @return - cache of BFS results, or null if the graph isn't a CompactBaconGraph
+     */
+    public BFSCache bfsCache() {
+        return bfsCache;
+    }
+
+    /**
+     * @return - the estimated separations, or null when they're exact
+     */
+    public SeparationEstimate separationEstimate() {
+        return separationEstimate;
+    }
+
+    /**
+     * @return - whether the game was started with -distances on the compact graph
+     */
+    public boolean indexesDistances() {
+        return indexDistances && bfsCache != null;
+    }
+
+    /**
+     * Shortest path between any two actors, from the distance index without a BFS, or as path() finds it while the
+     * index is rebuilt after an i
+     *
+     * @param actor - an actor in the graph
+     * @param other - another actor in the graph, where the path ends
+     * @return - the path, with the movies along it
+     */
+    public GraphPath<String, List<String>> pathBetween(String actor, String other) {
+        DistanceIndex index = distanceIndex;
+        if (index != null && index.covers((CompactBaconGraph) baconGraph)) return index.path(actor, other);
+        return path(actor, other);
+    }
+
+    /**
+     * Shortest path from an actor to the center, from the center's BFS if it's already cached, or else with a
+     * bidirectional BFS that stops once the two searches meet. Only s loads a center's full BFS into the cache
+     *
+     * @param actor - an actor in the graph
+     * @param center - the center of the universe
+     * @return - the path, with the movies along it
+     */
+    public GraphPath<String, List<String>> path(String actor, String center) {
+        Graph<String, List<String>> graph = baconGraph;
+        if (bfsCache != null) {
+            CompactBaconGraph compactGraph = (CompactBaconGraph) graph;
+            BFSResult centerBFS = bfsCache.peek(compactGraph.indexOf(center));
+            if (centerBFS != null) return GraphLib.pathToSource(compactGraph, centerBFS, compactGraph.indexOf(actor));
+        }
+        return GraphLib.shortestPath(graph, actor, center);
+    }
+
+    /**
+     * Separation statistics of the center. The compact graph takes them from the level counts of its cached BFS
+     * without building a path tree; the other graphs walk their path tree level by level
+     *
+     * @param center - the center of the universe
+     * @return - average separation, eccentricity and distance histogram of the center
+     */
+    public SeparationStats centerStats(String center) {
+        if (bfsCache != null) return bfsCache.get(center).separationStats();
+
+        Graph<String, List<String>> centerBFS = baconGraph instanceof BipartiteBaconGraph
+                ? ((BipartiteBaconGraph) baconGraph).bfs(center)
+                : GraphLib.bfs(baconGraph, center);
+        return GraphLib.separationStats(centerBFS, center);
+    }
+
+    /**
+     * @param k - number of actors wanted
+     * @return - the k actors with the most co-stars, most first
+     */
+    public List<String> mostCoStars(int k) {
+        return GraphLib.topK(baconGraph.vertices(), baconGraph::inDegree, k, true);
+    }
+
+    /**
+     * The k actors connected to Kevin Bacon with the lowest exact average separation. On the compact graph the pruned
+     * search runs once per length and every shorter leaderboard is a prefix of it, so sessions asking again, or for
+     * fewer actors, don't search at all
+     *
+     * @param k - number of actors wanted
+     * @return - the actors, lowest average separation first
+     */
+    public List<String> lowestSeparations(int k) {
+        if (separationIndex != null) return separationIndex.top(k);
+        if (averageSeparationMap != null) return GraphLib.topK(baconConnected, averageSeparationMap::get, k, false);
+
+        synchronized (this) {
+            if (lowestSeparations.size() < Math.min(k, components.componentSize(LEADERBOARD_CENTER))) {
+                lowestSeparations = new AverageSeparationCalc().lowestAverageSeparations((CompactBaconGraph) baconGraph, components,
+                        LEADERBOARD_CENTER, k, Runtime.getRuntime().availableProcessors(), null);
+            }
+            return lowestSeparations.subList(0, Math.min(k, lowestSeparations.size()));
+        }
+    }
+
+    /**
+     * Answers a file of "center|actor" path queries with one BFS per center, holding no more BFS results at once than
+     * the cache budget allows
+     *
+     * @param queriesPathname - file of queries, one per line
+     * @param outputPathname - file to write one answer per query to
+     * @return - how many queries were answered, or why none were
+     */
+    public String answerPaths(String queriesPathname, String outputPathname) throws IOException {
+        if (bfsCache == null) return "Path queries can only be batched on the compact graph";
+
+        long start = System.nanoTime();
+        PathBatch batch = new PathBatch((CompactBaconGraph) baconGraph, cacheBytes);
+        batch.run(queriesPathname, outputPathname);
+        return batch + " in " + (System.nanoTime() - start) / 1_000_000 + " ms";
+    }
+
+    /**
+     * Compares the estimated separations with the exact ones, computing the exact ones the first time
+     *
+     * @return - how well the estimate did, or null if the separations aren't estimated
+     */
+    public synchronized String compareEstimate() {
+        if (separationEstimate == null) return null;
+        if (frozen) return "The exact separations can't be computed while sessions share the game";
+
+        // the exact separations take one BFS per actor, so they're only computed when asked for
+        if (separationIndex == null) {
+            separationIndex = indexSeparations();
+            if (liveGraph != null) liveGraph.addListener(separationIndex);
+        }
+        return "Estimate from " + separationEstimate.numPivots() + " actors: " + separationEstimate.compareWith(separationIndex, 25);
+    }
+
+    /**
+     * Adds the actors, movies and cast entries in a directory to the compact graph
+     *
+     * @param directory - directory with any of actors.txt, movies.txt and movie-actors.txt in the same formats as the
+     * game's files
+     * @return - what was added, or why nothing was
+     */
+    public synchronized String addFiles(String directory) throws Exception {
+        if (bfsCache == null) return "Actors can only be added to the compact graph";
+        if (frozen) return "Actors can't be added while sessions share the game";
+        if (!new File(directory).isDirectory()) return "There is no directory " + directory;
+
+        // the first addition needs the casts the graph was built from, by movie id, so the files are streamed again
+        if (liveGraph == null) {
+            liveGraph = bacon.createLiveBaconGraph((CompactBaconGraph) baconGraph, ACTORS, MOVIES, MOVIE_ACTORS);
+            liveGraph.addListener(bfsCache);
+            liveGraph.addListener(components);
+            if (separationIndex != null) liveGraph.addListener(separationIndex);
+        }
+
+        // splice in whichever of the three files the directory has
+        long start = System.nanoTime();
+        int before = baconGraph.numVertices();
+        baconGraph = bacon.applyDelta(liveGraph, existing(directory, "actors.txt"), existing(directory, "movies.txt"), existing(directory, "movie-actors.txt"));
+        lowestSeparations = List.of();
+
+        // an estimate is cheap enough to just take again
+        if (separationEstimate != null) separationEstimate = estimateSeparations(separationEstimate.numPivots());
+
+        // the distance index takes much longer, so it's built in the background while b falls back to BFS
+        if (indexDistances) rebuildDistanceIndex((CompactBaconGraph) baconGraph);
+
+        return "Added " + (baconGraph.numVertices() - before) + " actors in " + (System.nanoTime() - start) / 1_000_000 + " ms"
+                + (separationIndex != null ? "; " + separationIndex.lastSearched() + " average separations were recomputed" : "")
+                + (indexDistances ? "; the distance index is being rebuilt" : "");
+    }
+
+    /**
+     * Exact average separation of every actor connected to Kevin Bacon, with the BFS for every actor spread across all cores
+     *
+     * @return - the separations, ready to follow the graph as actors are added
+     */
+    private SeparationIndex indexSeparations() {
+        return new SeparationIndex((CompactBaconGraph) baconGraph, bfsCache.get(LEADERBOARD_CENTER), Runtime.getRuntime().availableProcessors(),
+                (done, total) -> System.out.print("\rComputing average separations: " + (100L * done / total) + "%" + (done == total ? "\n" : "")));
+    }
+
+    /**
+     * Estimated average separation of every actor connected to Kevin Bacon, from a BFS out of each of a fixed random
+     * sample of actors
+     *
+     * @param pivots - number of actors to search from
+     * @return - the estimates, with their confidence intervals
+     */
+    private SeparationEstimate estimateSeparations(int pivots) {
+        return new SeparationEstimate((CompactBaconGraph) baconGraph, bfsCache.get(LEADERBOARD_CENTER), pivots, 42, Runtime.getRuntime().availableProcessors(),
+                (done, total) -> System.out.print("\rEstimating average separations: " + (100L * done / total) + "%" + (done == total ? "\n" : "")));
+    }
+
+    /**
+     * Reads the distance index saved next to the snapshot if it was written after the snapshot, or builds and saves it
+     *
+     * @return - the index of the graph as loaded
+     */
+    private DistanceIndex loadDistanceIndex() {
+        CompactBaconGraph compactGraph = (CompactBaconGraph) baconGraph;
+
+        if (GraphSnapshot.isNewerThan(DISTANCE_INDEX, SNAPSHOT)) {
+            try {
+                return DistanceIndex.load(compactGraph, DISTANCE_INDEX);
+            } catch (IOException e) {
+                System.err.println("Cannot read distance index, rebuilding it: " + e.getMessage());
+            }
+        }
+
+        DistanceIndex index = buildDistanceIndex();
+        try {
+            index.write(DISTANCE_INDEX);
+        } catch (IOException e) {
+            System.err.println("Cannot write distance index: " + e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * Drops the distance index and labels the graph again on a background thread, quietly, since it may run while
+     * the game is answering. Additions aren't in the snapshot either, so the new index isn't saved
+     *
+     * @param graph - the graph after the addition
+     */
+    private void rebuildDistanceIndex(CompactBaconGraph graph) {
+        distanceIndex = null;
+
+        Thread indexer = new Thread(() -> {
+            try {
+                DistanceIndex index = new DistanceIndex(graph, null);
+
+                // a later i has started its own rebuild, so only the index of the current graph is kept
+                synchronized (this) {
+                    if (baconGraph == graph) distanceIndex = index;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Cannot index distances: " + e);
+            }
+        }, "bacon-distance-index");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /**
+     * Labels every actor of the graph as it is now, reporting how long it took and how big the labels are
+     */
+    private DistanceIndex buildDistanceIndex() {
+        DistanceIndex index = new DistanceIndex((CompactBaconGraph) baconGraph,
+                (done, total) -> System.out.print("\rIndexing distances: " + (100L * done / total) + "%" + (done == total ? "\n" : "")));
+        System.out.println(index);
+        return index;
+    }
+
+    /**
+     * @param directory - directory that may have the file
+     * @param name - file name
+     * @return - the path of the file, or null if the directory doesn't have it
+     */
+    private static String existing(String directory, String name) {
+        File file = new File(directory, name);
+        return file.isFile() ? file.getPath() : null;
+    }
+}
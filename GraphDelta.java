@@ -0,0 +1,288 @@
+import java.util.Arrays;
+
+/**
+ * New actors, movies and co-star pairs to splice into an existing CompactBaconGraph. The existing graph is never
+ * changed: apply() copies its arrays into a new graph with the additions merged in, which takes one pass over the
+ * arrays instead of sorting every pair again like CompactGraphBuilder. New actors and movies get the ids after the
+ * last ones of the base graph, so every existing id stays the same
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class GraphDelta {
+
+    private final CompactBaconGraph base;
+    private NameDictionary actors;          // copy of the base actors plus the new ones, made on the first new actor
+    private String[] movies = new String[16];
+    private int numMovies;
+
+    // one entry per (actor, co-star, movie) triple, with pairFirst < pairSecond
+    private int[] pairFirst = new int[16];
+    private int[] pairSecond = new int[16];
+    private int[] pairMovie = new int[16];
+    private int numPairs;
+
+    // edges of the new graph that weren't in the base graph, filled in by apply
+    private int[] insertedFirst = new int[0];
+    private int[] insertedSecond = new int[0];
+
+    /**
+     * @param base - the graph the additions will be spliced into
+     */
+    public GraphDelta(CompactBaconGraph base) {
+        this.base = base;
+    }
+
+    public CompactBaconGraph base() {
+        return base;
+    }
+
+    /**
+     * Adds an actor as a vertex (a no-op if the actor is already in the base graph or was already added)
+     *
+     * @param actor - actor name
+     * @return - the vertex id of the actor
+     */
+    public int addActor(String actor) {
+        if (actors == null) {
+            int id = base.indexOf(actor);
+            if (id >= 0) return id;
+            actors = base.actors().copy();
+        }
+        return actors.add(actor);
+    }
+
+    /**
+     * Adds a movie. Every call gets a fresh id after the base graph's movies
+     *
+     * @param title - movie title
+     * @return - the movie id
+     */
+    public int addMovie(String title) {
+        if (numMovies == movies.length) movies = Arrays.copyOf(movies, numMovies * 2);
+        movies[numMovies] = title;
+        return base.numMovies() + numMovies++;
+    }
+
+    /**
+     * Connects two actors with a movie, adding the movie to their label if they were already connected
+     *
+     * @param actor - vertex id
+     * @param coStar - vertex id
+     * @param movie - movie id, from the base graph or addMovie
+     */
+    public void addCoStars(int actor, int coStar, int movie) {
+        // an actor listed twice in the same cast doesn't get an edge to themselves
+        if (actor == coStar) return;
+
+        if (numPairs == pairFirst.length) {
+            int capacity = numPairs * 2;
+            pairFirst = Arrays.copyOf(pairFirst, capacity);
+            pairSecond = Arrays.copyOf(pairSecond, capacity);
+            pairMovie = Arrays.copyOf(pairMovie, capacity);
+        }
+        pairFirst[numPairs] = Math.min(actor, coStar);
+        pairSecond[numPairs] = Math.max(actor, coStar);
+        pairMovie[numPairs] = movie;
+        numPairs++;
+    }
+
+    /**
+     * @return - number of vertices the graph will have once the delta is applied
+     */
+    public int numVertices() {
+        return actors != null ? actors.size() : base.numVertices();
+    }
+
+    /**
+     * @return - whether the delta adds nothing
+     */
+    public boolean isEmpty() {
+        return actors == null && numMovies == 0 && numPairs == 0;
+    }
+
+    /**
+     * Builds the graph with the additions spliced in. Movies added to an existing edge go after the movies it
+     * already had, skipping any it already has
+     *
+     * @return - a new graph; the base graph is unchanged
+     */
+    public CompactBaconGraph apply() {
+        int numVertices = numVertices();
+        int[] baseOffsets = base.offsets(), baseNeighbors = base.neighbors(), baseEdgeLabels = base.edgeLabels();
+        int[] baseLabelOffsets = base.labelOffsets(), baseLabelMovies = base.labelMovies();
+        int numBaseLabels = baseLabelOffsets.length - 1;
+
+        // sort the pairs by (first, second), like CompactGraphBuilder
+        int[] bySecond = CompactGraphBuilder.countingSort(pairSecond, CompactGraphBuilder.identity(numPairs), numVertices);
+        int[] order = CompactGraphBuilder.countingSort(pairFirst, bySecond, numVertices);
+
+        // movies for existing labels, and new edges with their own new labels
+        int[] extraLabel = new int[numPairs], extraMovie = new int[numPairs];
+        int[] edgeFirst = new int[numPairs], edgeSecond = new int[numPairs];
+        int[] newLabelOffsets = new int[numPairs + 1], newLabelMovies = new int[numPairs];
+        int numExtras = 0, numEdges = 0, numNewLabelMovies = 0;
+        int runFirst = -1, runSecond = -1, runLabel = -1;
+
+        for (int k = 0; k < numPairs; k++) {
+            int pair = order[k];
+            int first = pairFirst[pair], second = pairSecond[pair], movie = pairMovie[pair];
+
+            // a new run of the same pair is either an existing edge or a new one
+            if (first != runFirst || second != runSecond) {
+                runFirst = first;
+                runSecond = second;
+                int slot = second < base.numVertices() ? base.edgeSlot(first, second) : -1;
+                runLabel = slot >= 0 ? baseEdgeLabels[slot] : -1;
+
+                if (runLabel < 0) {
+                    edgeFirst[numEdges] = first;
+                    edgeSecond[numEdges] = second;
+                    newLabelOffsets[numEdges++] = numNewLabelMovies;
+                }
+            }
+
+            if (runLabel >= 0) {
+                // skip movies the existing label (or an earlier pair in this run) already has
+                if (contains(baseLabelMovies, baseLabelOffsets[runLabel], baseLabelOffsets[runLabel + 1], movie)) continue;
+                if (numExtras > 0 && extraLabel[numExtras - 1] == runLabel && extraMovie[numExtras - 1] == movie) continue;
+
+                extraLabel[numExtras] = runLabel;
+                extraMovie[numExtras++] = movie;
+            }
+            else {
+                if (newLabelOffsets[numEdges - 1] < numNewLabelMovies && newLabelMovies[numNewLabelMovies - 1] == movie) continue;
+                newLabelMovies[numNewLabelMovies++] = movie;
+            }
+        }
+        newLabelOffsets[numEdges] = numNewLabelMovies;
+
+        // labels: every base label with its extra movies, then one label per new edge
+        int[] extraOrder = CompactGraphBuilder.countingSort(extraLabel, CompactGraphBuilder.identity(numExtras), numBaseLabels);
+        int[] labelOffsets = new int[numBaseLabels + numEdges + 1];
+        int[] labelMovies = new int[baseLabelMovies.length + numExtras + numNewLabelMovies];
+        int copiedLabels = 0, size = 0;
+
+        for (int k = 0; k < numExtras; k++) {
+            int label = extraLabel[extraOrder[k]];
+
+            // copy the untouched labels up to and including this one in bulk, then append the extra movie
+            if (copiedLabels <= label) {
+                size = copyLabels(baseLabelOffsets, baseLabelMovies, copiedLabels, label + 1, labelOffsets, labelMovies, size);
+                copiedLabels = label + 1;
+            }
+            labelMovies[size++] = extraMovie[extraOrder[k]];
+        }
+        size = copyLabels(baseLabelOffsets, baseLabelMovies, copiedLabels, numBaseLabels, labelOffsets, labelMovies, size);
+
+        for (int e = 0; e < numEdges; e++) {
+            labelOffsets[numBaseLabels + e] = size;
+            int length = newLabelOffsets[e + 1] - newLabelOffsets[e];
+            System.arraycopy(newLabelMovies, newLabelOffsets[e], labelMovies, size, length);
+            size += length;
+        }
+        labelOffsets[numBaseLabels + numEdges] = size;
+
+        // both directions of every new edge, sorted by (from, to) so each row merges in order
+        int[] from = new int[2 * numEdges], to = new int[2 * numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            from[2 * e] = edgeFirst[e];
+            to[2 * e] = edgeSecond[e];
+            from[2 * e + 1] = edgeSecond[e];
+            to[2 * e + 1] = edgeFirst[e];
+        }
+        int[] byTo = CompactGraphBuilder.countingSort(to, CompactGraphBuilder.identity(2 * numEdges), numVertices);
+        int[] directed = CompactGraphBuilder.countingSort(from, byTo, numVertices);
+
+        // merge each row of the base graph with that vertex's new neighbors
+        int[] offsets = new int[numVertices + 1];
+        int[] neighbors = new int[baseNeighbors.length + 2 * numEdges];
+        int[] edgeLabels = new int[neighbors.length];
+        int next = 0, position = 0;
+
+        for (int v = 0; v < numVertices; v++) {
+            int slot = v < base.numVertices() ? baseOffsets[v] : 0;
+            int end = v < base.numVertices() ? baseOffsets[v + 1] : 0;
+
+            while (next < directed.length && from[directed[next]] == v) {
+                int entry = directed[next++];
+
+                // copy the base neighbors that come before the new one in a single block
+                int stop = slot;
+                while (stop < end && baseNeighbors[stop] < to[entry]) stop++;
+                position = copyRow(baseNeighbors, baseEdgeLabels, slot, stop, neighbors, edgeLabels, position);
+                slot = stop;
+
+                neighbors[position] = to[entry];
+                edgeLabels[position++] = numBaseLabels + entry / 2;
+            }
+            position = copyRow(baseNeighbors, baseEdgeLabels, slot, end, neighbors, edgeLabels, position);
+            offsets[v + 1] = position;
+        }
+
+        // remember which edges are new, for repairing anything computed on the base graph
+        insertedFirst = Arrays.copyOf(edgeFirst, numEdges);
+        insertedSecond = Arrays.copyOf(edgeSecond, numEdges);
+
+        NameDictionary newActors = actors != null ? actors : base.actors();
+        StringTable newMovies = numMovies > 0 ? base.movies().append(movies, numMovies) : base.movies();
+        return new CompactBaconGraph(newActors, newMovies, offsets, neighbors, edgeLabels, labelOffsets, labelMovies);
+    }
+
+    /**
+     * @return - number of edges apply added that weren't in the base graph at all
+     */
+    public int numInsertedEdges() {
+        return insertedFirst.length;
+    }
+
+    /**
+     * @param e - index of an inserted edge
+     * @return - the lower vertex id of the edge
+     */
+    public int insertedFirst(int e) {
+        return insertedFirst[e];
+    }
+
+    /**
+     * @param e - index of an inserted edge
+     * @return - the higher vertex id of the edge
+     */
+    public int insertedSecond(int e) {
+        return insertedSecond[e];
+    }
+
+    /**
+     * @return - whether values[from .. to) contains the value
+     */
+    private static boolean contains(int[] values, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies labels [from, to) of the base graph, pointing their offsets at their new position
+     *
+     * @return - the size of labelMovies after the copy
+     */
+    private static int copyLabels(int[] baseOffsets, int[] baseMovies, int from, int to, int[] labelOffsets, int[] labelMovies, int size) {
+        int shift = size - baseOffsets[from];
+        for (int label = from; label < to; label++) {
+            labelOffsets[label] = baseOffsets[label] + shift;
+        }
+        System.arraycopy(baseMovies, baseOffsets[from], labelMovies, size, baseOffsets[to] - baseOffsets[from]);
+        return size + baseOffsets[to] - baseOffsets[from];
+    }
+
+    /**
+     * Copies base neighbor slots [from, to) with their labels to position
+     *
+     * @return - the position after the copied slots
+     */
+    private static int copyRow(int[] baseNeighbors, int[] baseEdgeLabels, int from, int to, int[] neighbors, int[] edgeLabels, int position) {
+        System.arraycopy(baseNeighbors, from, neighbors, position, to - from);
+        System.arraycopy(baseEdgeLabels, from, edgeLabels, position, to - from);
+        return position + to - from;
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Library for graph analysis
@@ -16,6 +17,9 @@ public class GraphLib {
 	 * @return - a path tree of children vertices with their grandchildren and so on
 	 */
 	public static <V,E> Graph<V,E> bfs(Graph<V,E> g, V source) {
+		long start = Metrics.start();
+		long edgesVisited = 0;
+
 		// initializing the path tree and the queue used for BFS
 		Graph<V, E> pathTree = new AdjacencyMapGraph<>();
 		Queue<V> queue = new LinkedList<>();
@@ -30,6 +34,7 @@ public class GraphLib {
 			// make new vertex what is at the front of the queue and loop over all of its neighbors
 			V newVertex = queue.remove();
 			for (V vertex : g.outNeighbors(newVertex)) {
+				edgesVisited++;
 
 				// if the path tree doesn't already have the neighbor...
 				if (!pathTree.hasVertex(vertex)) {
@@ -46,9 +51,261 @@ public class GraphLib {
 			}
 		}
 
+		Metrics.traversal(pathTree.numVertices(), edgesVisited);
+		Metrics.query("bfs", start);
+		return pathTree;
+	}
+
+	/**
+	 * Switch from top-down to bottom-up once the frontier's edges exceed 1/ALPHA of the edges still unexplored,
+	 * and back to top-down once the frontier shrinks below 1/BETA of the vertices (Beamer et al.)
+	 */
+	private static final int ALPHA = 14, BETA = 24;
+
+	/**
+	 * Direction-optimizing BFS on the compact graph. Small frontiers are expanded top-down from a queue, as in bfs;
+	 * once the frontier touches a large share of the remaining edges, each unvisited vertex instead looks for any
+	 * neighbor in a bitset of the frontier and stops at the first one it finds. Distances match bfs exactly; ties
+	 * between equally short paths may be broken differently
+	 *
+	 * @param g - the compact actor graph
+	 * @param source - vertex id you're searching from
+	 * @return - distances and parents of every vertex as primitive arrays
+	 */
+	public static BFSResult hybridBFS(CompactBaconGraph g, int source) {
+		long start = Metrics.start();
+		long edgesVisited = 0;
+		int n = g.numVertices();
+		int[] offsets = g.offsets(), neighbors = g.neighbors();
+
+		// initializing distances and parents as unreached
+		int[] distances = new int[n], parents = new int[n];
+		Arrays.fill(distances, -1);
+		Arrays.fill(parents, -1);
+
+		// the frontier is a list of vertices while going top-down and a bitset while going bottom-up
+		int[] frontier = new int[n], next = new int[n];
+		long[] frontierBits = new long[(n + 63) >>> 6], nextBits = new long[frontierBits.length];
+		boolean bottomUp = false;
+
+		// counting the vertices on each level as they're reached, for the separation statistics
+		int[] levelSizes = new int[16];
+		levelSizes[0] = 1;
+
+		distances[source] = 0;
+		frontier[0] = source;
+		int frontierSize = 1, numReached = 1;
+		long frontierEdges = g.degree(source);
+		long unexploredEdges = neighbors.length - frontierEdges;
+
+		for (int level = 0; frontierSize > 0; level++) {
+
+			// pick the direction for this level, converting the frontier if it changes
+			if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+				bottomUp = true;
+				Arrays.fill(frontierBits, 0);
+				for (int i = 0; i < frontierSize; i++) {
+					frontierBits[frontier[i] >>> 6] |= 1L << frontier[i];
+				}
+			}
+			else if (bottomUp && frontierSize < n / BETA) {
+				bottomUp = false;
+				frontierSize = 0;
+				for (int v = 0; v < n; v++) {
+					if ((frontierBits[v >>> 6] & (1L << v)) != 0) frontier[frontierSize++] = v;
+				}
+			}
+
+			int nextSize = 0;
+			long nextEdges = 0;
+
+			if (bottomUp) {
+				// every unvisited vertex looks for a parent in the frontier
+				Arrays.fill(nextBits, 0);
+				for (int v = 0; v < n; v++) {
+					if (distances[v] != -1) continue;
+
+					for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+						int u = neighbors[slot];
+						edgesVisited++;
+
+						if ((frontierBits[u >>> 6] & (1L << u)) != 0) {
+							distances[v] = level + 1;
+							parents[v] = u;
+							nextBits[v >>> 6] |= 1L << v;
+							nextSize++;
+							nextEdges += offsets[v + 1] - offsets[v];
+							break;
+						}
+					}
+				}
+				long[] swap = frontierBits;
+				frontierBits = nextBits;
+				nextBits = swap;
+			}
+			else {
+				// every frontier vertex claims its unvisited neighbors
+				for (int i = 0; i < frontierSize; i++) {
+					int u = frontier[i];
+					edgesVisited += offsets[u + 1] - offsets[u];
+
+					for (int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+						int v = neighbors[slot];
+
+						if (distances[v] == -1) {
+							distances[v] = level + 1;
+							parents[v] = u;
+							next[nextSize++] = v;
+							nextEdges += offsets[v + 1] - offsets[v];
+						}
+					}
+				}
+				int[] swap = frontier;
+				frontier = next;
+				next = swap;
+			}
+
+			if (level + 1 >= levelSizes.length) levelSizes = Arrays.copyOf(levelSizes, levelSizes.length * 2);
+			levelSizes[level + 1] = nextSize;
+
+			frontierSize = nextSize;
+			frontierEdges = nextEdges;
+			unexploredEdges -= nextEdges;
+			numReached += nextSize;
+		}
+
+		Metrics.traversal(numReached, edgesVisited);
+		Metrics.query("hybrid bfs", start);
+		return new BFSResult(source, distances, parents, numReached, levelSizes);
+	}
+
+	/**
+	 * Direction-optimizing BFS from an actor, see hybridBFS(CompactBaconGraph, int)
+	 *
+	 * @param g - the compact actor graph
+	 * @param source - the actor you're searching from
+	 * @return - distances and parents of every vertex as primitive arrays
+	 */
+	public static BFSResult hybridBFS(CompactBaconGraph g, String source) {
+		int id = g.indexOf(source);
+		if (id < 0) throw new IllegalArgumentException(source + " is not in the graph");
+		return hybridBFS(g, id);
+	}
+
+	/**
+	 * Brings a BFS result from the base graph of a delta up to date with the graph the delta was applied to, without
+	 * searching the whole graph again. Adding edges can only shorten distances, so only the vertices an inserted edge
+	 * brings closer (and whatever lies behind them) are visited
+	 *
+	 * @param g - the graph returned by delta.apply()
+	 * @param result - BFS result on delta.base()
+	 * @param delta - the applied delta
+	 * @return - a result with the same distances as a fresh BFS on g; the old result is unchanged
+	 */
+	public static BFSResult repairBFS(CompactBaconGraph g, BFSResult result, GraphDelta delta) {
+		int n = g.numVertices();
+		int[] offsets = g.offsets(), neighbors = g.neighbors();
+
+		// copy the old arrays, with new actors unreached
+		int[] distances = Arrays.copyOf(result.distances(), n), parents = Arrays.copyOf(result.parents(), n);
+		for (int v = result.distances().length; v < n; v++) {
+			distances[v] = -1;
+			parents[v] = -1;
+		}
+
+		// every inserted edge that shortens the path to one of its ends starts a repair from that end
+		int[] queue = new int[16];
+		int head = 0, tail = 0, numReached = result.numReached();
+
+		for (int e = 0; e < delta.numInsertedEdges(); e++) {
+			int u = delta.insertedFirst(e), v = delta.insertedSecond(e);
+
+			for (int side = 0; side < 2; side++) {
+				int from = side == 0 ? u : v, to = side == 0 ? v : u;
+				if (distances[from] < 0 || (distances[to] >= 0 && distances[to] <= distances[from] + 1)) continue;
+
+				if (distances[to] < 0) numReached++;
+				distances[to] = distances[from] + 1;
+				parents[to] = from;
+				if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+				queue[tail++] = to;
+			}
+		}
+
+		// push the shorter distances outward until nothing else gets closer
+		while (head < tail) {
+			int u = queue[head++];
+
+			for (int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+				int v = neighbors[slot];
+				if (distances[v] >= 0 && distances[v] <= distances[u] + 1) continue;
+
+				if (distances[v] < 0) numReached++;
+				distances[v] = distances[u] + 1;
+				parents[v] = u;
+
+				// reuse the front of the queue once it has been consumed
+				if (tail == queue.length) {
+					if (head > queue.length / 2) {
+						System.arraycopy(queue, head, queue, 0, tail - head);
+						tail -= head;
+						head = 0;
+					}
+					else queue = Arrays.copyOf(queue, queue.length * 2);
+				}
+				queue[tail++] = v;
+			}
+		}
+
+		return new BFSResult(result.source(), distances, parents, numReached);
+	}
+
+	/**
+	 * Turns an array BFS result back into the path tree bfs returns, for callers that work on Graphs
+	 *
+	 * @param g - the compact actor graph the BFS ran on
+	 * @param result - the BFS result
+	 * @return - a path tree with each reached vertex pointing at its parent, labelled as in the original graph
+	 */
+	public static Graph<String, List<String>> toPathTree(CompactBaconGraph g, BFSResult result) {
+		Graph<String, List<String>> pathTree = new AdjacencyMapGraph<>();
+
+		// insert every reached vertex, then the edge from each one to its parent
+		for (int v = 0; v < g.numVertices(); v++) {
+			if (result.reached(v)) pathTree.insertVertex(g.actor(v));
+		}
+		for (int v = 0; v < g.numVertices(); v++) {
+			int parent = result.parent(v);
+			if (parent >= 0) pathTree.insertDirected(g.actor(v), g.actor(parent), g.label(g.edgeSlot(v, parent)));
+		}
+
 		return pathTree;
 	}
 
+	/**
+	 * Shortest path from an actor back to the source of an array BFS result, labelled as in the graph
+	 *
+	 * @param g - the compact actor graph the BFS ran on
+	 * @param result - the BFS result
+	 * @param v - vertex id the path starts from
+	 * @return - the path from v to the source, or an empty path if the BFS didn't reach v
+	 */
+	public static GraphPath<String, List<String>> pathToSource(CompactBaconGraph g, BFSResult result, int v) {
+		long start = Metrics.start();
+		List<String> vertices = new ArrayList<>();
+		List<List<String>> labels = new ArrayList<>();
+
+		// follow the parents back to the source, labelling each step
+		for (int current : result.path(v)) {
+			int parent = result.parent(current);
+			vertices.add(g.actor(current));
+			if (parent >= 0) labels.add(g.label(g.edgeSlot(current, parent)));
+		}
+
+		Metrics.query("path lookup", start);
+		return new GraphPath<>(vertices, labels);
+	}
+
 	/**
 	 * Method to determine the shortest path from the given vertex to the source vertex that bfs was conducted on
 	 *
@@ -57,6 +314,8 @@ public class GraphLib {
 	 * @return - a path from the given vertex to the source
 	 */
 	public static <V,E> List<V> getPath(Graph<V,E> tree, V v){
+		long start = Metrics.start();
+
 		// initialize path and the starting vertex
 		List<V> path = new ArrayList<>();
 		V current = v;
@@ -67,20 +326,116 @@ public class GraphLib {
 			return path;
 		}
 
-		// while there is still an out neighbor to get...
-		while (tree.outNeighbors(current).iterator().hasNext()){
+		// while there is still an out neighbor to get (asking the tree for the neighbors once per vertex)...
+		Iterator<V> up = tree.outNeighbors(current).iterator();
+		while (up.hasNext()){
 
 			// add the current vertex to the path and set the new current vertex to the only out neighbor
 			path.add(current);
-			current = tree.outNeighbors(current).iterator().next();
+			current = up.next();
+			up = tree.outNeighbors(current).iterator();
 		}
 
 		// add the final vertex to the path
 		path.add(current);
 
+		Metrics.query("getPath", start);
 		return path;
 	}
 
+	/**
+	 * Point-to-point shortest path using a bidirectional BFS: one search grows forward from the start and one grows
+	 * backward from the end, always expanding whichever frontier is smaller by one full level, and stopping at the
+	 * first level where they meet. Only the neighborhoods of the two ends get explored, not a whole path tree
+	 *
+	 * @param g - the graph
+	 * @param from - the vertex the path starts at
+	 * @param to - the vertex the path ends at
+	 * @return - the shortest path from from to to with the label of every edge on it (empty if there is none)
+	 */
+	public static <V,E> GraphPath<V,E> shortestPath(Graph<V,E> g, V from, V to) {
+		List<V> vertices = new ArrayList<>();
+		List<E> labels = new ArrayList<>();
+
+		// if either end isn't in the graph, there is no path
+		if (!g.hasVertex(from) || !g.hasVertex(to)) return new GraphPath<>(vertices, labels);
+		long start = Metrics.start();
+		long edgesVisited = 0;
+
+		// parents and distances for each side; forward parents point toward from, backward parents toward to
+		Map<V,V> forwardParents = new HashMap<>(), backwardParents = new HashMap<>();
+		Map<V,Integer> forwardDistances = new HashMap<>(), backwardDistances = new HashMap<>();
+		List<V> forwardFrontier = new ArrayList<>(), backwardFrontier = new ArrayList<>();
+
+		forwardParents.put(from, null);
+		forwardDistances.put(from, 0);
+		forwardFrontier.add(from);
+		backwardParents.put(to, null);
+		backwardDistances.put(to, 0);
+		backwardFrontier.add(to);
+
+		// the vertex where the best path found so far crosses from one side to the other
+		V meeting = from.equals(to) ? from : null;
+		int bestLength = meeting != null ? 0 : Integer.MAX_VALUE;
+
+		// while the searches haven't met and both can still grow...
+		while (meeting == null && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+
+			// expand the smaller frontier by a whole level
+			boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+			List<V> frontier = forward ? forwardFrontier : backwardFrontier;
+			Map<V,V> parents = forward ? forwardParents : backwardParents;
+			Map<V,Integer> distances = forward ? forwardDistances : backwardDistances;
+			Map<V,Integer> otherDistances = forward ? backwardDistances : forwardDistances;
+			List<V> next = new ArrayList<>();
+
+			for (V current : frontier) {
+				int distance = distances.get(current) + 1;
+
+				for (V neighbor : forward ? g.outNeighbors(current) : g.inNeighbors(current)) {
+					edgesVisited++;
+					if (distances.containsKey(neighbor)) continue;
+
+					parents.put(neighbor, current);
+					distances.put(neighbor, distance);
+					next.add(neighbor);
+
+					// if the other side already reached the neighbor, keep the shortest crossing in this level
+					Integer otherDistance = otherDistances.get(neighbor);
+					if (otherDistance != null && distance + otherDistance < bestLength) {
+						bestLength = distance + otherDistance;
+						meeting = neighbor;
+					}
+				}
+			}
+
+			if (forward) forwardFrontier = next;
+			else backwardFrontier = next;
+		}
+
+		Metrics.traversal(forwardDistances.size() + backwardDistances.size(), edgesVisited);
+		Metrics.query("shortest path", start);
+
+		// if the searches never met, there is no path
+		if (meeting == null) return new GraphPath<>(vertices, labels);
+
+		// walk from the meeting vertex back to from, then reverse, then walk on from the meeting vertex to to
+		for (V current = meeting; current != null; current = forwardParents.get(current)) {
+			vertices.add(current);
+		}
+		Collections.reverse(vertices);
+		for (V current = backwardParents.get(meeting); current != null; current = backwardParents.get(current)) {
+			vertices.add(current);
+		}
+
+		// label every edge along the path
+		for (int i = 0; i < vertices.size() - 1; i++) {
+			labels.add(g.getLabel(vertices.get(i), vertices.get(i + 1)));
+		}
+
+		return new GraphPath<>(vertices, labels);
+	}
+
 	/**
 	 * Given an original graph and a subgraph of the same graph, return the vertices that aren't included in both
 	 *
@@ -110,35 +465,57 @@ public class GraphLib {
 	}
 
 	/**
-	 * Uses a helper method to calculate the average separation of a given vertex and its bfs tree
+	 * Calculates the average separation of a given vertex from its bfs tree
 	 * @param tree - the shortest path tree
 	 * @param root - the center of the universe
 	 * @return - the average separation as a double
 	 */
 	public static <V,E> double averageSeparation(Graph<V,E> tree, V root){
-		// gets the number of possible paths and uses the helper function to find the total number of movement throughout those paths
-		int connectedActors = tree.numVertices() - 1;
-		int totalMovement = averageSeparationHelper(0, tree, root);
+		return separationStats(tree, root).averageSeparation();
+	}
 
-		// returns the average separation
-		return (double) totalMovement/connectedActors;
+	/**
+	 * Counts how many vertices of the bfs tree sit at each distance from the root, walking down the tree one level at
+	 * a time with a queue instead of recursing, so deep trees can't overflow the stack
+	 * @param tree - the shortest path tree
+	 * @param root - the center of the universe
+	 * @return - average separation, eccentricity and distance histogram of the root
+	 */
+	public static <V,E> SeparationStats separationStats(Graph<V,E> tree, V root){
+		long start = Metrics.start();
+		int[] levelSizes = new int[16];
+		List<V> level = new ArrayList<>(), nextLevel = new ArrayList<>();
+		level.add(root);
+
+		// every child of a vertex on one level (its in-neighbor in the tree) is on the next level
+		for (int distance = 0; !level.isEmpty(); distance++){
+			if (distance >= levelSizes.length) levelSizes = Arrays.copyOf(levelSizes, levelSizes.length * 2);
+			levelSizes[distance] = level.size();
+
+			for (V vertex : level){
+				for (V child : tree.inNeighbors(vertex)) nextLevel.add(child);
+			}
+
+			List<V> swap = level;
+			level = nextLevel;
+			nextLevel = swap;
+			nextLevel.clear();
+		}
+
+		Metrics.query("separation", start);
+		return new SeparationStats(levelSizes);
 	}
 
 	/**
-	 * Helper method that calculates the total movement throughout the paths using recursion
+	 * Calculates the total movement throughout the paths below root, where root itself counts as totalMovement
 	 * @param totalMovement - the total amount of movement for that path
 	 * @param tree - the shortest path tree
-	 * @param root - the current root being used for recursion
+	 * @param root - the current root being used
 	 * @return - the total movement adding up to the current path
 	 */
 	public static <V,E> int averageSeparationHelper(int totalMovement, Graph<V,E> tree, V root){
-		int movement = totalMovement;
-
-		for (V inVertex : tree.inNeighbors(root)){
-			movement += averageSeparationHelper(totalMovement + 1, tree, inVertex);
-		}
-
-		return movement;
+		SeparationStats stats = separationStats(tree, root);
+		return (int) (stats.totalDistance() + (long) totalMovement * stats.numReached());
 	}
 
 	/**
@@ -231,4 +608,95 @@ public class GraphLib {
 		vertexList.sort(compare);
 		return vertexList;
 	}
+
+	/**
+	 * Picks the k best vertices by a per-vertex score without sorting all of them. Each score is computed once, and a
+	 * bounded heap of the best k seen so far keeps this O(V log k)
+	 * @param vertices		vertices to choose from
+	 * @param score			score of each vertex
+	 * @param k				number of vertices wanted
+	 * @param highestFirst	whether higher scores are better (otherwise lower scores are)
+	 * @return				up to k vertices, best first; ties keep the order the vertices were given in, like a stable sort
+	 */
+	public static <V> List<V> topK(Iterable<V> vertices, ToDoubleFunction<V> score, int k, boolean highestFirst) {
+		// score every vertex once into a primitive array
+		List<V> vertexList = new ArrayList<>();
+		double[] scores = new double[16];
+
+		for (V vertex : vertices) {
+			if (vertexList.size() == scores.length) scores = Arrays.copyOf(scores, scores.length * 2);
+			scores[vertexList.size()] = score.applyAsDouble(vertex);
+			vertexList.add(vertex);
+		}
+
+		List<V> top = new ArrayList<>();
+		for (int index : topK(Arrays.copyOf(scores, vertexList.size()), k, highestFirst)) {
+			top.add(vertexList.get(index));
+		}
+		return top;
+	}
+
+	/**
+	 * Picks the indices of the k best scores without sorting the whole array
+	 * @param scores		score of each index (e.g. of each vertex id)
+	 * @param k				number of indices wanted
+	 * @param highestFirst	whether higher scores are better (otherwise lower scores are); NaN counts as highest
+	 * @return				up to k indices, best first; equal scores keep the lower index first
+	 */
+	public static int[] topK(double[] scores, int k, boolean highestFirst) {
+		k = Math.max(0, Math.min(k, scores.length));
+
+		// heap of the best k so far, with the worst of them at the root so it's the one replaced
+		int[] heap = new int[k];
+		int size = 0;
+
+		for (int i = 0; i < scores.length && k > 0; i++) {
+			if (size < k) {
+				// sift the new index up
+				int child = size++;
+				while (child > 0 && isWorse(scores, i, heap[(child - 1) / 2], highestFirst)) {
+					heap[child] = heap[(child - 1) / 2];
+					child = (child - 1) / 2;
+				}
+				heap[child] = i;
+			}
+			else if (isWorse(scores, heap[0], i, highestFirst)) {
+				siftDown(scores, heap, size, i, highestFirst);
+			}
+		}
+
+		// repeatedly take the worst off the heap, filling the result from the back
+		int[] top = new int[size];
+		while (size > 0) {
+			top[size - 1] = heap[0];
+			size--;
+			if (size > 0) siftDown(scores, heap, size, heap[size], highestFirst);
+		}
+		return top;
+	}
+
+	/**
+	 * Puts index at the root of the heap and sifts it down to where it belongs
+	 */
+	private static void siftDown(double[] scores, int[] heap, int size, int index, boolean highestFirst) {
+		int parent = 0;
+		while (2 * parent + 1 < size) {
+			int child = 2 * parent + 1;
+			if (child + 1 < size && isWorse(scores, heap[child + 1], heap[child], highestFirst)) child++;
+			if (!isWorse(scores, heap[child], index, highestFirst)) break;
+
+			heap[parent] = heap[child];
+			parent = child;
+		}
+		heap[parent] = index;
+	}
+
+	/**
+	 * @return - whether index a ranks below index b: a worse score, or an equal score and a higher index
+	 */
+	private static boolean isWorse(double[] scores, int a, int b, boolean highestFirst) {
+		int compare = Double.compare(scores[a], scores[b]);
+		if (compare == 0) return a > b;
+		return highestFirst ? compare < 0 : compare > 0;
+	}
 }
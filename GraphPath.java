@@ -0,0 +1,51 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A path through a graph: its vertices in order, plus the label of the edge between each consecutive pair
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class GraphPath<V,E> {
+
+    private final List<V> vertices;
+    private final List<E> labels;   // labels.get(i) is the label of the edge from vertices.get(i) to vertices.get(i+1)
+
+    public GraphPath(List<V> vertices, List<E> labels) {
+        this.vertices = Collections.unmodifiableList(vertices);
+        this.labels = Collections.unmodifiableList(labels);
+    }
+
+    /**
+     * @return - the vertices from the start of the path to its end, or an empty list if there is no path
+     */
+    public List<V> vertices() {
+        return vertices;
+    }
+
+    /**
+     * @return - the label of each edge along the path, one fewer than the number of vertices
+     */
+    public List<E> labels() {
+        return labels;
+    }
+
+    /**
+     * @return - whether the two ends are connected at all
+     */
+    public boolean exists() {
+        return !vertices.isEmpty();
+    }
+
+    /**
+     * @return - number of edges along the path, or -1 if there is no path
+     */
+    public int length() {
+        return vertices.size() - 1;
+    }
+
+    @Override
+    public String toString() {
+        return vertices.toString();
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary snapshot of a finished CompactBaconGraph, so the game can skip parsing the text files and
+ * rebuilding the graph. Loading memory-maps the file: the int arrays come across with one bulk copy each, and the
+ * actor and movie names stay UTF-8 encoded in the mapping until they are looked at
+ *
+ * Layout (little-endian): a header of HEADER_INTS ints, then the int sections actor name offsets, actor lookup slots,
+ * offsets, neighbors, edge labels, label offsets, label movies and movie name offsets, then the actor name bytes and
+ * the movie name bytes
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class GraphSnapshot {
+
+    private static final int MAGIC = 0x4E435342;    // "BSCN"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 10;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    /**
+     * Writes the graph to the file, replacing it only once the whole snapshot has been written
+     *
+     * @param graph - the graph to save
+     * @param pathname - file to write
+     * @throws IOException - if the file can't be written
+     */
+    public static void write(CompactBaconGraph graph, String pathname) throws IOException {
+        byte[][] actorNames = encode(graph.actors(), graph.numVertices());
+        byte[][] movieNames = encode(graph.movies());
+        int[] actorNameOffsets = offsetsOf(actorNames);
+        int[] movieNameOffsets = offsetsOf(movieNames);
+        int[] slots = graph.actors().slots();
+
+        Path target = Paths.get(pathname);
+        Path temp = Paths.get(pathname + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+            // header: format, then the length of every section
+            int[] header = {MAGIC, VERSION, graph.numVertices(), graph.numMovies(), slots.length, graph.numEdges(),
+                    graph.labelOffsets().length - 1, graph.labelMovies().length,
+                    actorNameOffsets[actorNames.length], movieNameOffsets[movieNames.length]};
+            writeInts(channel, buffer, header);
+
+            // int sections
+            writeInts(channel, buffer, actorNameOffsets);
+            writeInts(channel, buffer, slots);
+            writeInts(channel, buffer, graph.offsets());
+            writeInts(channel, buffer, graph.neighbors());
+            writeInts(channel, buffer, graph.edgeLabels());
+            writeInts(channel, buffer, graph.labelOffsets());
+            writeInts(channel, buffer, graph.labelMovies());
+            writeInts(channel, buffer, movieNameOffsets);
+
+            // name bytes
+            writeBytes(channel, buffer, actorNames);
+            writeBytes(channel, buffer, movieNames);
+            flush(channel, buffer);
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a snapshot written by write back into a graph
+     *
+     * @param pathname - file to read
+     * @return - the graph that was saved
+     * @throws IOException - if the file can't be read or isn't a snapshot this version understands
+     */
+    public static CompactBaconGraph load(String pathname) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < 4L * HEADER_INTS) throw new IOException(pathname + " is too short to be a graph snapshot");
+
+            // check the header before trusting any of the lengths in it
+            int[] header = readInts(channel, 0, HEADER_INTS);
+            if (header[0] != MAGIC) throw new IOException(pathname + " is not a graph snapshot");
+            if (header[1] != VERSION) throw new IOException(pathname + " has unsupported snapshot version " + header[1]);
+
+            int numActors = header[2], numMovies = header[3], numSlots = header[4], numNeighbors = header[5];
+            int numLabels = header[6], numLabelMovies = header[7], actorBytes = header[8], movieBytes = header[9];
+
+            long expectedSize = 4L * (HEADER_INTS + (numActors + 1) + numSlots + (numActors + 1) + 2L * numNeighbors
+                    + (numLabels + 1) + numLabelMovies + (numMovies + 1)) + actorBytes + movieBytes;
+            if (fileSize != expectedSize) throw new IOException(pathname + " is truncated or corrupt");
+
+            // the name offsets stay in the mapping; the adjacency arrays are copied out in bulk
+            long position = 4L * HEADER_INTS;
+            IntBuffer actorNameOffsets = map(channel, position, 4L * (numActors + 1)).asIntBuffer();
+            position += 4L * (numActors + 1);
+            int[] slots = readInts(channel, position, numSlots);
+            position += 4L * numSlots;
+            int[] offsets = readInts(channel, position, numActors + 1);
+            position += 4L * (numActors + 1);
+            int[] neighbors = readInts(channel, position, numNeighbors);
+            position += 4L * numNeighbors;
+            int[] edgeLabels = readInts(channel, position, numNeighbors);
+            position += 4L * numNeighbors;
+            int[] labelOffsets = readInts(channel, position, numLabels + 1);
+            position += 4L * (numLabels + 1);
+            int[] labelMovies = readInts(channel, position, numLabelMovies);
+            position += 4L * numLabelMovies;
+            IntBuffer movieNameOffsets = map(channel, position, 4L * (numMovies + 1)).asIntBuffer();
+            position += 4L * (numMovies + 1);
+
+            // the names are only decoded when they're looked at
+            ByteBuffer actorNames = map(channel, position, actorBytes);
+            position += actorBytes;
+            ByteBuffer movieNames = map(channel, position, movieBytes);
+
+            NameDictionary actors = new NameDictionary(new StringTable(actorNames, actorNameOffsets), slots);
+            StringTable movies = new StringTable(movieNames, movieNameOffsets);
+            return new CompactBaconGraph(actors, movies, offsets, neighbors, edgeLabels, labelOffsets, labelMovies);
+        }
+    }
+
+    /**
+     * @param snapshot - snapshot file
+     * @param sources - files the snapshot was built from
+     * @return - whether the snapshot exists and was written after every source file was last changed
+     */
+    public static boolean isNewerThan(String snapshot, String... sources) {
+        File snapshotFile = new File(snapshot);
+        if (!snapshotFile.isFile()) return false;
+
+        for (String source : sources) {
+            if (new File(source).lastModified() >= snapshotFile.lastModified()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * UTF-8 encodes the first count names of the dictionary
+     */
+    private static byte[][] encode(NameDictionary names, int count) {
+        byte[][] encoded = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            encoded[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    /**
+     * UTF-8 encodes every string of the table
+     */
+    private static byte[][] encode(StringTable strings) {
+        byte[][] encoded = new byte[strings.size()][];
+        for (int i = 0; i < strings.size(); i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    /**
+     * @return - the start of every encoded string once they're packed back to back, plus the total length
+     */
+    private static int[] offsetsOf(byte[][] encoded) {
+        int[] offsets = new int[encoded.length + 1];
+        for (int i = 0; i < encoded.length; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], encoded[i].length);
+        }
+        return offsets;
+    }
+
+    /**
+     * Buffers the ints, writing the buffer out whenever it fills
+     */
+    static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int written = 0;
+        while (written < values.length) {
+            if (buffer.remaining() < 4) flush(channel, buffer);
+
+            // copy as many ints as fit through an int view of the rest of the buffer
+            int count = Math.min(buffer.remaining() / 4, values.length - written);
+            buffer.asIntBuffer().put(values, written, count);
+            buffer.position(buffer.position() + 4 * count);
+            written += count;
+        }
+    }
+
+    /**
+     * Buffers the encoded strings back to back, writing the buffer out whenever it fills
+     */
+    static void writeBytes(FileChannel channel, ByteBuffer buffer, byte[][] encoded) throws IOException {
+        for (byte[] bytes : encoded) {
+            int written = 0;
+            while (written < bytes.length) {
+                if (!buffer.hasRemaining()) flush(channel, buffer);
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+    }
+
+    /**
+     * Writes out everything in the buffer and empties it
+     */
+    static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Maps a read-only, little-endian view of part of the file
+     */
+    static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Copies an int section of the file out of the mapping in one bulk copy
+     */
+    static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        map(channel, position, 4L * count).asIntBuffer().get(values);
+        return values;
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+/**
+ * Map from int ids to non-negative ints without boxing, by open addressing over parallel int arrays. Used to number
+ * movie ids from the files, which can be sparse or negative, without a Map<Integer, Integer>
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class IntIntMap {
+
+    // keys[slot] and values[slot] hold one entry (values[slot] == -1 means the slot is empty)
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntMap() {
+        this(16);
+    }
+
+    /**
+     * @param expected - number of entries to make room for up front
+     */
+    public IntIntMap(int expected) {
+        int capacity = 16;
+        while (capacity < 2L * expected) capacity *= 2;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, -1);
+    }
+
+    /**
+     * @param key - id
+     * @return - the value for the id, or -1 if there isn't one
+     */
+    public int get(int key) {
+        return values[findSlot(key)];
+    }
+
+    /**
+     * Maps the id to the value, replacing any previous value
+     *
+     * @param key - id
+     * @param value - value, which can't be negative
+     * @return - the previous value for the id, or -1 if there wasn't one
+     */
+    public int put(int key, int value) {
+        if (value < 0) throw new IllegalArgumentException("IntIntMap can't hold negative values: " + value);
+
+        int slot = findSlot(key);
+        int previous = values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (previous < 0 && ++size * 2 > keys.length) rehash(keys.length * 2);
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves every entry into tables of the given (power of two) capacity
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, -1);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] >= 0) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Finds the slot holding the key, or the empty slot where it would go
+     */
+    private int findSlot(int key) {
+        int mask = keys.length - 1;
+        int slot = NameDictionary.mix(key) & mask;
+
+        while (values[slot] >= 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,244 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map from int ids to strings without boxing. While the ids are compact (as they are in the IMDb files) the strings
+ * sit in a plain array indexed by id; once the ids get too sparse for that, the table switches to open addressing
+ * over parallel int/String arrays. asMap() gives a Map<Integer, String> view for code that wants a regular map
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class IntStringMap {
+
+    /**
+     * Receives every entry of the table
+     */
+    public interface EntryConsumer {
+        void accept(int key, String value);
+    }
+
+    private static final int MIN_DENSE = 1024;   // a dense array this long is always fine, however sparse
+
+    // dense mode: values[id] is the string for id (null if absent); keys is null
+    // hashed mode: keys[slot] and values[slot] hold one entry (values[slot] == null means the slot is empty)
+    private int[] keys;
+    private String[] values;
+    private int size;
+    private Map<Integer, String> view;
+
+    public IntStringMap() {
+        values = new String[16];
+    }
+
+    /**
+     * @return - the table behind a view from asMap, or else a new table with a copy of the map's entries
+     */
+    public static IntStringMap from(Map<Integer, String> map) {
+        if (map instanceof View) return ((View) map).table();
+
+        IntStringMap table = new IntStringMap();
+        for (Map.Entry<Integer, String> entry : map.entrySet()) {
+            table.put(entry.getKey(), entry.getValue());
+        }
+        return table;
+    }
+
+    /**
+     * @param key - id
+     * @return - the string for the id, or null if there isn't one
+     */
+    public String get(int key) {
+        if (keys == null) return key >= 0 && key < values.length ? values[key] : null;
+        return values[findSlot(key)];
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the id to the string, replacing any previous string
+     *
+     * @param key - id
+     * @param value - string, which can't be null
+     * @return - the previous string for the id, or null if there wasn't one
+     */
+    public String put(int key, String value) {
+        if (value == null) throw new NullPointerException("IntStringMap can't hold null values");
+
+        // stay dense while the array would be at most about twice as long as the number of entries
+        if (keys == null && key >= 0) {
+            if (key < values.length || key < Math.max(MIN_DENSE, 2 * (size + 1))) {
+                if (key >= values.length) values = Arrays.copyOf(values, Math.max(key + 1, values.length * 2));
+
+                String previous = values[key];
+                values[key] = value;
+                if (previous == null) size++;
+                return previous;
+            }
+        }
+        if (keys == null) toHashed();
+
+        int slot = findSlot(key);
+        String previous = values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (previous == null && ++size * 2 > keys.length) rehash(keys.length * 2);
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls the consumer for every entry, in increasing id order while the table is dense
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) consumer.accept(keys == null ? i : keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Rough number of heap bytes held by the table, including the strings
+     */
+    public long estimatedBytes() {
+        long bytes = 32 + 16 + 4L * values.length + (keys == null ? 0 : 16 + 4L * keys.length);
+        for (String value : values) {
+            if (value != null) bytes += 56 + value.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return - a Map<Integer, String> backed by this table; changes to either show up in the other
+     */
+    public Map<Integer, String> asMap() {
+        if (view == null) view = new View();
+        return view;
+    }
+
+    /**
+     * Switches from an array indexed by id to open addressing
+     */
+    private void toHashed() {
+        String[] dense = values;
+        keys = new int[16];
+        values = new String[16];
+        int count = size;
+        size = 0;
+
+        rehash(Math.max(16, Integer.highestOneBit(Math.max(count, 1)) * 4));
+        for (int key = 0; key < dense.length; key++) {
+            if (dense[key] != null) put(key, dense[key]);
+        }
+    }
+
+    /**
+     * Moves every entry into tables of the given (power of two) capacity
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        String[] oldValues = values;
+        keys = new int[capacity];
+        values = new String[capacity];
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Finds the slot holding the key, or the empty slot where it would go (hashed mode only)
+     */
+    private int findSlot(int key) {
+        int mask = keys.length - 1;
+        int slot = NameDictionary.mix(key) & mask;
+
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Map<Integer, String> view over the table. Removing entries isn't supported
+     */
+    private class View extends AbstractMap<Integer, String> {
+
+        IntStringMap table() {
+            return IntStringMap.this;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof Integer ? IntStringMap.this.get((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public String put(Integer key, String value) {
+            return IntStringMap.this.put(key, value);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Map.Entry<Integer, String>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < values.length;
+                        }
+
+                        @Override
+                        public Map.Entry<Integer, String> next() {
+                            if (next >= values.length) throw new NoSuchElementException();
+
+                            Map.Entry<Integer, String> entry = new SimpleImmutableEntry<>(keys == null ? next : keys[next], values[next]);
+                            next = advance(next + 1);
+                            return entry;
+                        }
+
+                        private int advance(int i) {
+                            while (i < values.length && values[i] == null) i++;
+                            return i;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
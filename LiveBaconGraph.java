@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A CompactBaconGraph that new actors, movies and cast entries can be added to while it is in use. Additions are
+ * collected in a GraphDelta and spliced into a new graph on commit, so anybody still holding the previous graph sees
+ * it unchanged. Listeners (the BFS cache, the separation index) are handed every applied delta so they can repair
+ * what they computed instead of starting over
+ *
+ * Movies are kept by their id in the files, like the streamed graph keeps them, so a cast entry only connects the
+ * actor to the movie it names even when other movies have the same title. The casts of the movies already in the
+ * graph are learned by streaming the files through a CastStream with the live graph as its listener
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class LiveBaconGraph implements CastStream.CastListener {
+
+    /**
+     * Told about every delta applied to the graph
+     */
+    public interface Listener {
+        /**
+         * @param delta - the applied delta; delta.base() is the graph before it
+         * @param updated - the graph after it
+         */
+        void update(GraphDelta delta, CompactBaconGraph updated);
+    }
+
+    private CompactBaconGraph graph;
+    private final IntStringMap actorTable;              // actor ids in the files to names
+    private final IntStringMap movieTable;              // movie ids in the files to titles
+    private final IntIntMap movieIds = new IntIntMap(); // movie ids in the files to movie ids in the graph
+    private int[][] casts;                              // vertex ids of the cast of each graph movie
+    private int[] castSizes;
+    private final List<Listener> listeners = new ArrayList<>();
+    private GraphDelta pending;                         // additions since the last commit, or null
+
+    /**
+     * Starts with no casts; streaming the files the graph was built from through a CastStream with this as its
+     * listener fills them in
+     *
+     * @param graph - graph built from the files with createCompactBaconGraph, or from its snapshot
+     * @param actorTable - actor ids to names
+     * @param movieTable - movie ids to titles
+     */
+    public LiveBaconGraph(CompactBaconGraph graph, IntStringMap actorTable, IntStringMap movieTable) {
+        this.graph = graph;
+        this.actorTable = actorTable;
+        this.movieTable = movieTable;
+        this.casts = new int[Math.max(graph.numMovies(), 16)][];
+        this.castSizes = new int[casts.length];
+    }
+
+    /**
+     * Remembers the cast of one movie of the graph by vertex id. A movie streamed again, e.g. once its file turns out
+     * not to be grouped, replaces what was remembered
+     *
+     * @param movieID - id of the movie in the files
+     * @param movie - movie id in the graph
+     * @param cast - vertex ids of its cast
+     * @param size - number of entries of cast to use
+     */
+    @Override
+    public void accept(int movieID, int movie, int[] cast, int size) {
+        if (movie >= graph.numMovies() || !graph.movie(movie).equals(movieTable.get(movieID))) {
+            throw new IllegalStateException("The files don't match the graph: movie " + movieID + " isn't movie " + movie);
+        }
+        movieIds.put(movieID, movie);
+
+        casts[movie] = new int[size];
+        castSizes[movie] = 0;
+        for (int i = 0; i < size; i++) {
+            if (!contains(movie, cast[i])) casts[movie][castSizes[movie]++] = cast[i];
+        }
+    }
+
+    /**
+     * @return - the graph with every committed addition
+     */
+    public CompactBaconGraph graph() {
+        return graph;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Adds an actor, who becomes a vertex on commit even without any movies
+     *
+     * @param id - actor id used by cast entries
+     * @param name - actor name
+     */
+    public void addActor(int id, String name) {
+        actorTable.put(id, name);
+        delta().addActor(name);
+    }
+
+    /**
+     * Adds a movie, which only shows up in the graph once it has cast entries
+     *
+     * @param id - movie id used by cast entries
+     * @param title - movie title
+     */
+    public void addMovie(int id, String title) {
+        movieTable.put(id, title);
+    }
+
+    /**
+     * Adds an actor to a movie's cast, connecting them to everybody already in it
+     *
+     * @param movieID - id of a known movie
+     * @param actorID - id of a known actor
+     * @return - false (and nothing added) if either id is unknown
+     */
+    public boolean addCastMember(int movieID, int actorID) {
+        String title = movieTable.get(movieID), actor = actorTable.get(actorID);
+        if (title == null || actor == null) return false;
+
+        GraphDelta delta = delta();
+        int v = delta.addActor(actor);
+
+        // a movie id the graph hasn't seen becomes a new movie, even if some other movie has its title
+        int movie = movieIds.get(movieID);
+        if (movie < 0) {
+            movie = delta.addMovie(title);
+            movieIds.put(movieID, movie);
+            if (movie >= casts.length) {
+                casts = Arrays.copyOf(casts, casts.length * 2);
+                castSizes = Arrays.copyOf(castSizes, casts.length);
+            }
+            casts[movie] = new int[4];
+        }
+
+        // connect the actor to the rest of the cast, unless they're already in it
+        if (contains(movie, v)) return true;
+        for (int i = 0; i < castSizes[movie]; i++) {
+            delta.addCoStars(v, casts[movie][i], movie);
+        }
+        if (castSizes[movie] == casts[movie].length) casts[movie] = Arrays.copyOf(casts[movie], Math.max(4, castSizes[movie] * 2));
+        casts[movie][castSizes[movie]++] = v;
+
+        return true;
+    }
+
+    /**
+     * Splices everything added since the last commit into a new graph and updates every listener
+     *
+     * @return - the new graph (the same graph if nothing was added)
+     */
+    public CompactBaconGraph commit() {
+        if (pending == null || pending.isEmpty()) {
+            pending = null;
+            return graph;
+        }
+
+        CompactBaconGraph updated = pending.apply();
+        for (Listener listener : listeners) {
+            listener.update(pending, updated);
+        }
+
+        graph = updated;
+        pending = null;
+        return graph;
+    }
+
+    /**
+     * The delta collecting additions, started on the first addition after a commit
+     */
+    private GraphDelta delta() {
+        if (pending == null) pending = new GraphDelta(graph);
+        return pending;
+    }
+
+    /**
+     * @return - whether the vertex is already in the movie's cast
+     */
+    private boolean contains(int movie, int v) {
+        for (int i = 0; i < castSizes[movie]; i++) {
+            if (casts[movie][i] == v) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,308 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Records where the time goes: how long each stage of loading the graph took and how big its result was, latency
+ * histograms of the queries, how many vertices and edges every BFS visited, and the bytes allocated and garbage
+ * collections during each stage. Everything is off unless the game is started with -metrics (or -Dbacon.metrics=true),
+ * or it is switched on over JMX; while off, every call returns after reading one boolean
+ *
+ * Load stages are timed with stage() and end(), queries with start() and query():
+ *     Metrics.Stage stage = Metrics.stage("build compact graph");
+ *     ...
+ *     Metrics.end(stage, graph.numVertices(), graph.numEdges());
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public final class Metrics implements MetricsMBean {
+
+    private static final String OBJECT_NAME = "bacon:type=Metrics";
+    private static final Metrics INSTANCE = new Metrics();
+
+    private static volatile boolean enabled = Boolean.getBoolean("bacon.metrics");
+    private static boolean registered;
+
+    private static final Map<String, String> stages = new LinkedHashMap<>();           // stage names to their last timing, in load order
+    private static final Map<String, LatencyHistogram> queries = new ConcurrentHashMap<>();   // reported by name
+    private static final LongAdder verticesVisited = new LongAdder();
+    private static final LongAdder edgesVisited = new LongAdder();
+
+    private Metrics() {
+    }
+
+    /**
+     * One load stage in progress, with the counters it started from
+     */
+    public static final class Stage {
+        private final String name;
+        private final long startNanos;
+        private final long startAllocated;
+        private final long startCollections;
+        private final long startCollectionMillis;
+
+        private Stage(String name) {
+            this.name = name;
+            this.startAllocated = allocatedBytes();
+            this.startCollections = gcCount();
+            this.startCollectionMillis = gcTimeMillis();
+            this.startNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return - whether anything is being recorded
+     */
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off; what was recorded is kept either way
+     */
+    public static void enable(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Makes the metrics visible over JMX. Registering more than once does nothing
+     */
+    public static synchronized void register() {
+        if (registered) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("Cannot register metrics MBean: " + e);
+        }
+    }
+
+    /**
+     * @param name - name of the stage, e.g. "build compact graph"
+     * @return - the stage, to hand to end() once it finishes, or null while metrics are off
+     */
+    public static Stage stage(String name) {
+        return enabled ? new Stage(name) : null;
+    }
+
+    /**
+     * Records a finished stage, replacing the last timing of a stage with the same name
+     *
+     * @param stage - what stage() returned (null is ignored)
+     * @param vertices - vertices (or entries) the stage produced
+     * @param edges - edges (or cast entries) the stage produced
+     */
+    public static void end(Stage stage, long vertices, long edges) {
+        if (stage == null) return;
+
+        long nanos = System.nanoTime() - stage.startNanos;
+        long allocated = allocatedBytes() - stage.startAllocated;
+        String timing = String.format("%-28s %10.1f ms %10d vertices %12d edges %10s allocated %4d GCs (%d ms)",
+                stage.name, nanos / 1e6, vertices, edges, allocated >= 0 ? allocated / 1024 + " KB" : "n/a",
+                gcCount() - stage.startCollections, gcTimeMillis() - stage.startCollectionMillis);
+
+        synchronized (stages) {
+            stages.put(stage.name, timing);
+        }
+    }
+
+    /**
+     * @return - the time a query starts, to hand to query(), or 0 while metrics are off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds a query's latency to its histogram
+     *
+     * @param name - name of the query, e.g. "bfs"
+     * @param start - what start() returned when the query began (0 is ignored)
+     */
+    public static void query(String name, long start) {
+        if (start == 0) return;
+        long nanos = System.nanoTime() - start;
+
+        // queries run on many threads at once; after a query's first call this is a lock-free read
+        queries.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Counts the vertices and edges a BFS visited
+     */
+    public static void traversal(long vertices, long edges) {
+        if (!enabled) return;
+        verticesVisited.add(vertices);
+        edgesVisited.add(edges);
+    }
+
+    /**
+     * @return - every stage, query and counter as lines of text
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("Metrics are ").append(enabled ? "on" : "off").append('\n');
+
+        // allocation is per thread, so a stage run on worker threads only shows what the thread that started it allocated
+        report.append("Load stages (allocated counts the calling thread only, not its worker threads):\n");
+        for (String timing : INSTANCE.getStageTimings()) report.append("  ").append(timing).append('\n');
+
+        report.append("Queries:\n");
+        for (String latency : INSTANCE.getQueryLatencies()) report.append("  ").append(latency).append('\n');
+
+        report.append("BFS visited ").append(verticesVisited.sum()).append(" vertices and ").append(edgesVisited.sum()).append(" edges\n");
+        report.append("Garbage collections: ").append(gcCount()).append(" (").append(gcTimeMillis()).append(" ms), heap used: ")
+                .append(heapUsedBytes() >> 20).append(" MB");
+        return report.toString();
+    }
+
+    /* ---------- MBean ---------- */
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean on) {
+        enable(on);
+    }
+
+    @Override
+    public String[] getStageTimings() {
+        synchronized (stages) {
+            return stages.values().toArray(new String[0]);
+        }
+    }
+
+    @Override
+    public String[] getQueryLatencies() {
+        List<String> latencies = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(queries).entrySet()) {
+            latencies.add(String.format("%-28s %s", entry.getKey(), entry.getValue()));
+        }
+        return latencies.toArray(new String[0]);
+    }
+
+    @Override
+    public long getBfsVerticesVisited() {
+        return verticesVisited.sum();
+    }
+
+    @Override
+    public long getBfsEdgesVisited() {
+        return edgesVisited.sum();
+    }
+
+    @Override
+    public long getGcCount() {
+        return gcCount();
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        return gcTimeMillis();
+    }
+
+    @Override
+    public long getHeapUsedBytes() {
+        return heapUsedBytes();
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+
+    @Override
+    public void reset() {
+        synchronized (stages) {
+            stages.clear();
+        }
+        queries.clear();
+        verticesVisited.reset();
+        edgesVisited.reset();
+    }
+
+    /* ---------- JVM counters ---------- */
+
+    /**
+     * @return - bytes the calling thread has allocated so far, or -1 if the JVM doesn't track it. Threads a parallel
+     * stage hands its work to aren't counted; summing over live threads would miss the ones that finished anyway
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static long heapUsedBytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Latencies counted in power-of-two buckets of nanoseconds, so recording is one increment and percentiles are
+     * accurate to within a factor of two
+     */
+    private static final class LatencyHistogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);    // bucket b counts latencies in [2^(b-1), 2^b)
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * @return - the upper end of the bucket the p-th fraction of latencies falls in, in nanoseconds
+         */
+        long percentile(double p) {
+            long target = (long) Math.ceil(p * count.sum()), seen = 0;
+            for (int b = 0; b < 64; b++) {
+                seen += buckets.get(b);
+                if (seen >= target && seen > 0) return Math.min(1L << b, maxNanos.get());
+            }
+            return maxNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            long n = count.sum();
+            return String.format("%8d calls, mean %10.3f ms, p50 <= %10.3f ms, p99 <= %10.3f ms, max %10.3f ms",
+                    n, n > 0 ? totalNanos.sum() / 1e6 / n : 0.0, percentile(0.5) / 1e6, percentile(0.99) / 1e6, maxNanos.get() / 1e6);
+        }
+    }
+}
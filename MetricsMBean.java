@@ -0,0 +1,41 @@
+/**
+ * What Metrics shows over JMX, e.g. in jconsole under bacon:type=Metrics
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public interface MetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return - one line per load stage: time, vertices, edges, bytes allocated and garbage collections during it
+     */
+    String[] getStageTimings();
+
+    /**
+     * @return - one line per query: count, mean and latency percentiles
+     */
+    String[] getQueryLatencies();
+
+    long getBfsVerticesVisited();
+
+    long getBfsEdgesVisited();
+
+    long getGcCount();
+
+    long getGcTimeMillis();
+
+    long getHeapUsedBytes();
+
+    /**
+     * @return - everything above as the text the stats command prints
+     */
+    String getReport();
+
+    /**
+     * Forgets every recorded stage, query and traversal
+     */
+    void reset();
+}
@@ -0,0 +1,69 @@
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Edge labels packed into one shared int array. Every movie title is stored once and referred to by movie id, and
+ * label l is the run of movie ids labelMovies[labelOffsets[l] .. labelOffsets[l+1]). Labels are handed out as
+ * read-only List<String> views, so titles are only looked up when a label is actually read, e.g. to print a path
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class MovieLabels {
+
+    private final StringTable movies;       // movie titles, indexed by movie id
+    private final int[] labelOffsets;       // movies of label l are labelMovies[labelOffsets[l] .. labelOffsets[l+1])
+    private final int[] labelMovies;        // movie ids of every label, packed back to back
+
+    /**
+     * Shares the arrays rather than copying them, so callers must not modify them
+     */
+    MovieLabels(StringTable movies, int[] labelOffsets, int[] labelMovies) {
+        this.movies = movies;
+        this.labelOffsets = labelOffsets;
+        this.labelMovies = labelMovies;
+    }
+
+    /**
+     * @param label - label id
+     * @return - read-only list of the movie titles in that label
+     */
+    public List<String> get(int label) {
+        return new MovieList(label);
+    }
+
+    /**
+     * @return - number of labels
+     */
+    public int size() {
+        return labelOffsets.length - 1;
+    }
+
+    /**
+     * Rough number of bytes held by the labels, counting the interned titles
+     */
+    public long estimatedBytes() {
+        return movies.estimatedBytes() + 16 + 4L * labelOffsets.length + 16 + 4L * labelMovies.length;
+    }
+
+    /**
+     * Read-only view of one label as movie titles
+     */
+    private class MovieList extends AbstractList<String> {
+        private final int label;
+
+        MovieList(int label) {
+            this.label = label;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+            return movies.get(labelMovies[labelOffsets[label] + index]);
+        }
+
+        @Override
+        public int size() {
+            return labelOffsets[label + 1] - labelOffsets[label];
+        }
+    }
+}
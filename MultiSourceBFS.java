@@ -0,0 +1,174 @@
+import java.util.Arrays;
+
+/**
+ * Bit-parallel BFS from up to 64 sources at once. Every vertex keeps one long per buffer, with bit i standing for
+ * sources[i]: seen says which searches have reached the vertex and the frontier says which reached it at the current
+ * distance. A level is one pass over the frontier that ORs each vertex's bits into its neighbors, so every adjacency
+ * list is read once per level for the whole batch instead of once per source. The distances found are exactly those of
+ * a separate BFS from every source
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class MultiSourceBFS {
+
+    /**
+     * Most sources one run can search from
+     */
+    public static final int WIDTH = Long.SIZE;
+
+    /**
+     * Told about every vertex as the searches reach it
+     */
+    public interface Visitor {
+        /**
+         * @param v - vertex id
+         * @param sources - bit i is set if the search from the ith source of the run reached v at this distance
+         * @param distance - distance from those sources to v
+         */
+        void visit(int v, long sources, int distance);
+    }
+
+    private final CompactBaconGraph graph;
+    private final long[] seen;
+    private long[] frontier;        // both frontiers are all zeros between runs
+    private long[] next;
+    private final long[] totals = new long[WIDTH];
+    private final int[] reached = new int[WIDTH];
+    private long verticesVisited, edgesVisited;     // over every run, for the metrics
+
+    /**
+     * Allocates the buffers once; every run reuses them, so one instance serves many batches on one thread
+     *
+     * @param graph - graph to search
+     */
+    public MultiSourceBFS(CompactBaconGraph graph) {
+        this.graph = graph;
+        seen = new long[graph.numVertices()];
+        frontier = new long[graph.numVertices()];
+        next = new long[graph.numVertices()];
+    }
+
+    /**
+     * Searches from sources[from .. from+count) at once
+     *
+     * @param sources - vertex ids to search from; the same vertex may be given more than once
+     * @param from - index of the first source of this run
+     * @param count - number of sources, from 1 to WIDTH
+     * @param visitor - told about every vertex as it's reached, the sources themselves at distance 0 (may be null)
+     */
+    public void run(int[] sources, int from, int count, Visitor visitor) {
+        if (count < 1 || count > WIDTH) throw new IllegalArgumentException("A run needs between 1 and " + WIDTH + " sources");
+        int[] offsets = graph.offsets(), neighbors = graph.neighbors();
+
+        Arrays.fill(seen, 0);
+        Arrays.fill(totals, 0);
+        Arrays.fill(reached, 0);
+        for (int i = 0; i < count; i++) {
+            seen[sources[from + i]] |= 1L << i;
+            frontier[sources[from + i]] |= 1L << i;
+        }
+
+        for (int distance = 0; ; distance++) {
+            boolean found = false;
+
+            for (int v = 0; v < frontier.length; v++) {
+                long bits = frontier[v];
+                if (bits == 0) continue;
+                frontier[v] = 0;
+
+                // every search in bits reached v at this distance
+                if (visitor != null) visitor.visit(v, bits, distance);
+                for (long rest = bits; rest != 0; rest &= rest - 1) {
+                    int i = Long.numberOfTrailingZeros(rest);
+                    totals[i] += distance;
+                    reached[i]++;
+                }
+                verticesVisited++;
+                edgesVisited += offsets[v + 1] - offsets[v];
+
+                // pass on the searches that haven't reached each neighbor yet
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    int neighbor = neighbors[slot];
+                    long fresh = bits & ~seen[neighbor];
+
+                    if (fresh != 0) {
+                        seen[neighbor] |= fresh;
+                        next[neighbor] |= fresh;
+                        found = true;
+                    }
+                }
+            }
+            if (!found) break;
+
+            long[] level = frontier;
+            frontier = next;
+            next = level;
+        }
+    }
+
+    /**
+     * @param i - index of the source within the last run
+     * @return - the sum of the distances from that source to every vertex it reached
+     */
+    public long totalDistance(int i) {
+        return totals[i];
+    }
+
+    /**
+     * @param i - index of the source within the last run
+     * @return - the number of vertices that source reached, including itself
+     */
+    public int numReached(int i) {
+        return reached[i];
+    }
+
+    public long verticesVisited() {
+        return verticesVisited;
+    }
+
+    public long edgesVisited() {
+        return edgesVisited;
+    }
+
+    /**
+     * Distances from every source to every target, e.g. the Bacon numbers of a list of actors for several centers,
+     * searching from up to 64 sources at a time
+     *
+     * @param graph - graph to search
+     * @param sources - vertex ids to search from
+     * @param targets - vertex ids wanted
+     * @return - the distance from sources[i] to targets[j] at [i][j], or -1 if there is no path
+     */
+    public static int[][] distances(CompactBaconGraph graph, int[] sources, int[] targets) {
+        // every target vertex knows which entries it fills; a vertex listed twice fills the first and is copied after
+        int[] targetIndex = new int[graph.numVertices()];
+        Arrays.fill(targetIndex, -1);
+        for (int j = targets.length - 1; j >= 0; j--) targetIndex[targets[j]] = j;
+
+        int[][] distances = new int[sources.length][targets.length];
+        for (int[] row : distances) Arrays.fill(row, -1);
+
+        MultiSourceBFS search = new MultiSourceBFS(graph);
+        for (int from = 0; from < sources.length; from += WIDTH) {
+            int first = from;
+            search.run(sources, from, Math.min(WIDTH, sources.length - from), (v, bits, distance) -> {
+                int j = targetIndex[v];
+                if (j < 0) return;
+                for (long rest = bits; rest != 0; rest &= rest - 1) {
+                    distances[first + Long.numberOfTrailingZeros(rest)][j] = distance;
+                }
+            });
+        }
+
+        // fill in the targets listed more than once
+        for (int j = 0; j < targets.length; j++) {
+            int original = targetIndex[targets[j]];
+            if (original != j) {
+                for (int[] row : distances) row[j] = row[original];
+            }
+        }
+
+        Metrics.traversal(search.verticesVisited, search.edgesVisited);
+        return distances;
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Dictionary that interns each name exactly once and hands out dense int ids (0, 1, 2, ...) in insertion order.
+ * Lookups use an open-addressing table of ids keyed by String.hashCode, so there is no boxing and no per-entry object.
+ * A dictionary loaded from a graph snapshot keeps its names encoded in the snapshot until they are looked at
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class NameDictionary implements Iterable<String> {
+
+    private String[] names;     // names indexed by id, or null while the names are still in a snapshot
+    private StringTable stored; // names still in a snapshot, decoded on demand (null once names is used)
+    private int[] slots;        // open-addressing table holding id + 1 for each occupied slot (0 means empty)
+    private int size;
+
+    public NameDictionary() {
+        this(16);
+    }
+
+    public NameDictionary(int expectedSize) {
+        names = new String[Math.max(expectedSize, 4)];
+        slots = new int[tableSizeFor(expectedSize)];
+    }
+
+    /**
+     * Dictionary over names and a lookup table read back from a snapshot written with slots()
+     *
+     * @param stored - the names, indexed by id
+     * @param slots - the open-addressing table the names were written with
+     */
+    NameDictionary(StringTable stored, int[] slots) {
+        this.stored = stored;
+        this.slots = slots;
+        this.size = stored.size();
+    }
+
+    /**
+     * Adds the name if it isn't already in the dictionary
+     *
+     * @param name - name to intern
+     * @return - the id of the name (the existing id if it was already added)
+     */
+    public int add(String name) {
+        int slot = findSlot(name);
+
+        // if the name is already in the table, hand back its id
+        if (slots[slot] != 0) return slots[slot] - 1;
+
+        // a new name means the snapshot's names have to move onto the heap first
+        if (names == null) {
+            names = new String[Math.max(size * 2, 4)];
+            for (int id = 0; id < size; id++) {
+                names[id] = stored.get(id);
+            }
+            stored = null;
+        }
+
+        // grow the name array if it is full
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+
+        // store the name and claim the slot
+        names[size] = name;
+        slots[slot] = size + 1;
+        size++;
+
+        // keep the table at most half full so probe chains stay short
+        if (size * 2 > slots.length) rehash();
+
+        return size - 1;
+    }
+
+    /**
+     * @param name - name to look up
+     * @return - the id of the name, or -1 if it was never added
+     */
+    public int indexOf(String name) {
+        if (name == null) return -1;
+        return slots[findSlot(name)] - 1;
+    }
+
+    /**
+     * @param id - id handed out by add
+     * @return - the name with that id
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("No name with id " + id);
+        return names != null ? names[id] : stored.get(id);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - a separate dictionary with the same names and ids, which can be added to without changing this one
+     */
+    public NameDictionary copy() {
+        NameDictionary copy = new NameDictionary();
+        copy.names = new String[Math.max(size * 2, 4)];
+        for (int id = 0; id < size; id++) {
+            copy.names[id] = get(id);
+        }
+        copy.slots = slots.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Rough number of bytes held by the dictionary, including the interned strings themselves
+     */
+    public long estimatedBytes() {
+        if (names == null) return 16 + stored.estimatedBytes() + 16 + 4L * slots.length;
+
+        long bytes = 16 + 16 + 4L * names.length + 16 + 4L * slots.length;
+        for (int i = 0; i < size; i++) {
+            // String object + backing array header, plus one byte per (Latin-1) character
+            bytes += 56 + names[i].length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Backing lookup table, for writing snapshots. Callers must not modify it
+     */
+    int[] slots() {
+        return slots;
+    }
+
+    /**
+     * Iterates over the names in id order
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Finds the slot holding the name, or the empty slot where it would go
+     */
+    private int findSlot(String name) {
+        int mask = slots.length - 1;
+        int slot = mix(name.hashCode()) & mask;
+
+        // linear probing until we hit the name or an empty slot
+        while (slots[slot] != 0 && !get(slots[slot] - 1).equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the table and reinserts every id
+     */
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = mix(names[id].hashCode()) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash code so nearby hashes don't cluster in the table
+     */
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Smallest power of two that keeps the given number of names at most half the table
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        return capacity;
+    }
+}
@@ -0,0 +1,431 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the average separation of many actors at once across several worker threads. Workers search from 64 actors
+ * at a time with a MultiSourceBFS, so each adjacency list is read once per batch rather than once per actor, except
+ * when ranking, where every BFS is cut short on its own. Each worker allocates its buffers once and reuses them for
+ * every search it runs, so the only per-actor work is the traversal itself
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class ParallelSeparationEngine {
+
+    /**
+     * Called as actors finish, roughly every 1% of the work. May be called from any worker thread
+     */
+    public interface ProgressListener {
+        void progress(int done, int total);
+    }
+
+    /**
+     * Receives the result of the BFS from sources[index]; each index is written by exactly one worker
+     */
+    private interface ResultSink {
+        void accept(int index, long totalMovement, int reached);
+    }
+
+    private static final int CHUNK = 16;     // sources a worker claims at a time when every BFS runs on its own
+
+    private final CompactBaconGraph graph;
+    private final ExecutorService executor;  // null means a pool is created (and shut down) for every run
+    private final int workers;
+
+    /**
+     * Engine that runs on its own pool of the given number of threads
+     *
+     * @param graph - graph of every actor
+     * @param threads - number of worker threads
+     */
+    public ParallelSeparationEngine(CompactBaconGraph graph, int threads) {
+        this(graph, null, threads);
+    }
+
+    /**
+     * Engine that runs on a caller-owned executor, which it never shuts down
+     *
+     * @param graph - graph of every actor
+     * @param executor - executor to submit the workers to (null for a private pool)
+     * @param workers - number of workers to submit
+     */
+    public ParallelSeparationEngine(CompactBaconGraph graph, ExecutorService executor, int workers) {
+        if (workers < 1) throw new IllegalArgumentException("Need at least one worker");
+        this.graph = graph;
+        this.executor = executor;
+        this.workers = workers;
+    }
+
+    /**
+     * Computes the average separation of every given actor, exactly as GraphLib.averageSeparation would on the
+     * actor's BFS tree
+     *
+     * @param sources - vertex ids of the actors
+     * @param listener - told about progress as actors finish (may be null)
+     * @return - the average separation of sources[i] at index i
+     */
+    public double[] averageSeparations(int[] sources, ProgressListener listener) {
+        double[] separations = new double[sources.length];
+        forEachBFS(sources, listener, (i, totalMovement, reached) -> separations[i] = (double) totalMovement / (reached - 1), null, null, null);
+        return separations;
+    }
+
+    /**
+     * Computes the sum of the distances from every given actor to every actor it reaches, which is what an average
+     * separation is made of and can be updated incrementally
+     *
+     * @param sources - vertex ids of the actors
+     * @param reached - receives the number of actors sources[i] reaches (including itself) at index i
+     * @param listener - told about progress as actors finish (may be null)
+     * @return - the total distance from sources[i] at index i
+     */
+    public long[] totalDistances(int[] sources, int[] reached, ProgressListener listener) {
+        long[] totals = new long[sources.length];
+        forEachBFS(sources, listener, (i, totalMovement, numReached) -> {
+            totals[i] = totalMovement;
+            reached[i] = numReached;
+        }, null, null, null);
+        return totals;
+    }
+
+    /**
+     * Runs a BFS from every pivot and adds the distance from each pivot to every actor it reaches into that actor's
+     * entry of sums, and the squared distance into squares, for estimating separations from a sample of pivots
+     *
+     * @param pivots - vertex ids of the pivots
+     * @param sums - one entry per vertex, added to
+     * @param squares - one entry per vertex, added to
+     * @param listener - told about progress as pivots finish (may be null)
+     */
+    public void sumDistances(int[] pivots, long[] sums, long[] squares, ProgressListener listener) {
+        forEachBFS(pivots, listener, (i, totalMovement, reached) -> {}, sums, squares, null);
+    }
+
+    /**
+     * Finds the k given actors with the lowest average separation, exactly as ranking averageSeparations would but
+     * without finishing most of the BFS runs. Actors are searched from the highest degree down, so good candidates
+     * come first, and each BFS stops as soon as a lower bound on its total distance is worse than the current kth best:
+     * the next level can have at most one actor per edge out of the level before it, and everybody else is further.
+     * Ties are broken by the lower vertex id, like GraphLib.topK
+     *
+     * @param sources - vertex ids of the actors, all in the same connected component
+     * @param componentSize - number of actors in that component
+     * @param k - number of actors wanted
+     * @param listener - told about progress as actors finish or are ruled out (may be null)
+     * @return - vertex ids of the k actors with the lowest average separation, lowest first
+     */
+    public int[] lowestAverageSeparations(int[] sources, int componentSize, int k, ProgressListener listener) {
+        // highest degree first, ties by vertex id
+        long[] keys = new long[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            keys[i] = (long) (Integer.MAX_VALUE - graph.degree(sources[i])) << 32 | sources[i];
+        }
+        Arrays.sort(keys);
+
+        int[] ordered = new int[sources.length];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = (int) keys[i];
+        }
+
+        Leaders leaders = new Leaders(Math.min(k, sources.length), componentSize);
+        forEachBFS(ordered, listener, (i, totalMovement, reached) -> {}, null, null, leaders);
+        return leaders.ranked();
+    }
+
+    /**
+     * Computes the average separation of every given actor and maps each actor's name to it
+     *
+     * @param sources - vertex ids of the actors
+     * @param listener - told about progress as actors finish (may be null)
+     * @return - map of actors to their average separation
+     */
+    public Map<String, Double> averageSeparationMap(int[] sources, ProgressListener listener) {
+        double[] separations = averageSeparations(sources, listener);
+        Map<String, Double> averageSeparationMap = new HashMap<>();
+
+        for (int i = 0; i < sources.length; i++) {
+            averageSeparationMap.put(graph.actor(sources[i]), separations[i]);
+        }
+        return averageSeparationMap;
+    }
+
+    /**
+     * Runs a BFS from every source across the workers, handing each one's result to the sink. Sources are searched a
+     * batch of 64 at a time. When sums and squares are given, every worker also adds up the distances of each vertex in
+     * its own arrays and merges them in at the end. When leaders are given, each BFS instead runs on its own, is cut
+     * short once it can't beat them, and the rest are offered to them
+     */
+    private void forEachBFS(int[] sources, ProgressListener listener, ResultSink sink, long[] sums, long[] squares, Leaders leaders) {
+        long startTime = Metrics.start();
+        AtomicInteger nextSource = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        int step = Math.max(1, sources.length / 100);
+
+        // every worker claims chunks of sources until none are left
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            tasks.add(() -> {
+                Workspace workspace = new Workspace(graph, leaders != null, sums != null);
+                int chunk = leaders != null ? CHUNK : MultiSourceBFS.WIDTH;
+                int start;
+
+                while ((start = nextSource.getAndAdd(chunk)) < sources.length) {
+                    int end = Math.min(start + chunk, sources.length);
+
+                    if (leaders != null) {
+                        for (int i = start; i < end; i++) {
+                            long totalMovement = workspace.bfs(graph, sources[i], leaders.componentSize, leaders.threshold);
+                            if (totalMovement >= 0) leaders.offer(sources[i], totalMovement);
+                        }
+                    }
+                    else workspace.batch(sources, start, end - start, sink);
+
+                    // report progress whenever this chunk crosses another step
+                    int finished = done.addAndGet(end - start);
+                    if (listener != null && (finished / step != (finished - (end - start)) / step || finished == sources.length)) {
+                        listener.progress(finished, sources.length);
+                    }
+                }
+
+                if (sums != null) workspace.mergeInto(sums, squares);
+                workspace.reportTraversal();
+                return null;
+            });
+        }
+
+        run(tasks);
+        Metrics.query(leaders != null ? "pruned separation batch" : "separation batch", startTime);
+    }
+
+    /**
+     * Runs the workers on the configured executor (or a fresh pool) and waits for all of them
+     */
+    private void run(List<Callable<Void>> tasks) {
+        ExecutorService pool = executor != null ? executor : new ForkJoinPool(workers);
+
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing average separations", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Average separation worker failed", e.getCause());
+        } finally {
+            if (executor == null) pool.shutdown();
+        }
+    }
+
+    /**
+     * The k actors with the lowest total distance found so far, shared by every worker. Actors in one component all
+     * divide by the same count, so the lowest totals are the lowest average separations
+     */
+    private static final class Leaders {
+        private final int k;
+        private final int componentSize;
+        private final int[] ids;            // max-heap on (total, id), so the worst leader is on top
+        private final long[] totals;
+        private int size;
+        private volatile long threshold = Long.MAX_VALUE;   // total of the worst leader once there are k of them
+
+        Leaders(int k, int componentSize) {
+            this.k = k;
+            this.componentSize = componentSize;
+            ids = new int[k];
+            totals = new long[k];
+        }
+
+        /**
+         * Adds the actor if it beats the worst leader, or there aren't k leaders yet
+         */
+        synchronized void offer(int id, long total) {
+            if (k == 0) return;
+            if (size < k) {
+                ids[size] = id;
+                totals[size] = total;
+                siftUp(size++);
+            }
+            else if (worse(totals[0], ids[0], total, id)) {
+                ids[0] = id;
+                totals[0] = total;
+                siftDown(0);
+            }
+            if (size == k) threshold = totals[0];
+        }
+
+        /**
+         * @return - the leaders, lowest total first
+         */
+        synchronized int[] ranked() {
+            int[] ranked = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                ranked[i] = ids[0];
+                ids[0] = ids[i];
+                totals[0] = totals[i];
+                size = i;
+                siftDown(0);
+            }
+            return ranked;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0 && worse(totals[i], ids[i], totals[(i - 1) / 2], ids[(i - 1) / 2])) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && worse(totals[child + 1], ids[child + 1], totals[child], ids[child])) child++;
+                if (!worse(totals[child], ids[child], totals[i], ids[i])) return;
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            long total = totals[i];
+            totals[i] = totals[j];
+            totals[j] = total;
+        }
+
+        /**
+         * @return - whether (total, id) ranks below (otherTotal, otherId)
+         */
+        private static boolean worse(long total, int id, long otherTotal, int otherId) {
+            return total > otherTotal || (total == otherTotal && id > otherId);
+        }
+    }
+
+    /**
+     * Buffers one worker reuses for every BFS it runs: a queue and stamps for BFS runs cut short on their own, or a
+     * MultiSourceBFS for batches. A vertex counts as visited when its stamp equals the stamp of the current BFS, so the
+     * stamps never need to be cleared between runs
+     */
+    private static final class Workspace {
+        private final int[] queue;              // null unless every BFS runs on its own
+        private final int[] seen;
+        private final MultiSourceBFS search;    // null unless sources are searched in batches
+        private final long[] sums;      // distances of each vertex from every source so far, or null if not collected
+        private final long[] squares;   // same for the squared distances
+        private int stamp;
+        private long verticesVisited, edgesVisited;     // over every single-source BFS, for the metrics
+
+        Workspace(CompactBaconGraph graph, boolean pruned, boolean collectDistances) {
+            int numVertices = graph.numVertices();
+            queue = pruned ? new int[numVertices] : null;
+            seen = pruned ? new int[numVertices] : null;
+            search = pruned ? null : new MultiSourceBFS(graph);
+            sums = collectDistances ? new long[numVertices] : null;
+            squares = collectDistances ? new long[numVertices] : null;
+        }
+
+        /**
+         * Searches from sources[start .. start+count) at once, handing each one's result to the sink and adding the
+         * distances to sums and squares when they're collected
+         */
+        void batch(int[] sources, int start, int count, ResultSink sink) {
+            search.run(sources, start, count, sums == null ? null : (v, bits, distance) -> {
+                int found = Long.bitCount(bits);
+                sums[v] += (long) distance * found;
+                squares[v] += (long) distance * distance * found;
+            });
+
+            for (int i = 0; i < count; i++) {
+                sink.accept(start + i, search.totalDistance(i), search.numReached(i));
+            }
+        }
+
+        /**
+         * Adds the vertices and edges this worker visited to the metrics
+         */
+        void reportTraversal() {
+            if (search != null) Metrics.traversal(search.verticesVisited(), search.edgesVisited());
+            else Metrics.traversal(verticesVisited, edgesVisited);
+        }
+
+        /**
+         * Adds the distances this worker collected to the shared totals
+         */
+        void mergeInto(long[] totalSums, long[] totalSquares) {
+            synchronized (totalSums) {
+                for (int v = 0; v < sums.length; v++) {
+                    totalSums[v] += sums[v];
+                    totalSquares[v] += squares[v];
+                }
+            }
+        }
+
+        /**
+         * Level-by-level BFS from the source that gives up once the total distance is sure to be above the threshold.
+         * Before each level it bounds the total: every vertex still unreached is at least at this level's distance, at
+         * most one per edge out of the last level (less the edge back to its parent) can be at exactly that distance,
+         * and the rest are at least one further
+         *
+         * @param componentSize - number of vertices the source can reach, including itself
+         * @param threshold - highest total still worth finishing
+         * @return - the sum of the distances from the source to every vertex it reaches, or -1 if it is above the threshold
+         */
+        long bfs(CompactBaconGraph graph, int source, int componentSize, long threshold) {
+            int[] offsets = graph.offsets(), neighbors = graph.neighbors();
+
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                stamp = 1;
+            }
+
+            int head = 0, tail = 0;
+            queue[tail++] = source;
+            seen[source] = stamp;
+            long totalMovement = 0;
+            long nextLevelLimit = offsets[source + 1] - offsets[source];
+
+            for (int distance = 1; ; distance++) {
+                // bound the total from what's left to reach
+                long unreached = componentSize - tail;
+                long near = Math.min(unreached, nextLevelLimit);
+                if (totalMovement + near * distance + (unreached - near) * (distance + 1) > threshold) {
+                    verticesVisited += tail;
+                    return -1;
+                }
+                if (head == tail) break;
+
+                int levelEnd = tail;
+                nextLevelLimit = 0;
+
+                while (head < levelEnd) {
+                    int current = queue[head++];
+                    edgesVisited += offsets[current + 1] - offsets[current];
+
+                    for (int slot = offsets[current]; slot < offsets[current + 1]; slot++) {
+                        int neighbor = neighbors[slot];
+
+                        if (seen[neighbor] != stamp) {
+                            seen[neighbor] = stamp;
+                            queue[tail++] = neighbor;
+                            totalMovement += distance;
+                            nextLevelLimit += offsets[neighbor + 1] - offsets[neighbor] - 1;
+                        }
+                    }
+                }
+            }
+
+            verticesVisited += tail;
+            return totalMovement;
+        }
+    }
+}
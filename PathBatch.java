@@ -0,0 +1,164 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers a whole file of path queries on the compact graph with one BFS per center. The queries are never held in
+ * memory: a first pass over the file finds the distinct centers, then each later pass searches from as many centers as
+ * fit in the memory budget and streams the answers for those centers straight to the output file. Within a pass the
+ * answers come in the order of the queries
+ *
+ * Queries are "center|actor" lines. Each answer is one line, with the movies the two actors on either side of them
+ * appeared in together between every pair of actors on the path:
+ *     center|actor|number|actor|movie;movie|co-star|movie|...|center
+ * and "center|actor|-1" when there is no path or either actor isn't in the graph
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class PathBatch {
+
+    private final CompactBaconGraph graph;
+    private final long budgetBytes;
+    private long answered, unreachable, unknown, malformed;
+
+    /**
+     * @param graph - graph of every actor
+     * @param budgetBytes - most bytes of BFS results to hold at once; at least one is always held
+     */
+    public PathBatch(CompactBaconGraph graph, long budgetBytes) {
+        this.graph = graph;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Answers every query in the file
+     *
+     * @param queriesPathname - file of "center|actor" lines
+     * @param outputPathname - file to write the answers to
+     * @throws IOException - if either file can't be read or written
+     */
+    public void run(String queriesPathname, String outputPathname) throws IOException {
+        List<String> centers = new ArrayList<>(distinctCenters(queriesPathname));
+        long bytesPerSearch = 32 + 2 * (16 + 4L * graph.numVertices());
+        int centersPerPass = (int) Math.max(1, Math.min(centers.size(), budgetBytes / bytesPerSearch));
+
+        try (BufferedWriter output = Files.newBufferedWriter(Paths.get(outputPathname), StandardCharsets.UTF_8)) {
+            StringBuilder answer = new StringBuilder();
+
+            for (int from = 0; from < centers.size(); from += centersPerPass) {
+
+                // one BFS for every center in this pass (null for centers that aren't actors)
+                Map<String, BFSResult> searches = new HashMap<>();
+                for (String center : centers.subList(from, Math.min(from + centersPerPass, centers.size()))) {
+                    int id = graph.indexOf(center);
+                    searches.put(center, id >= 0 ? GraphLib.hybridBFS(graph, id) : null);
+                }
+
+                // answer the queries about those centers, in file order
+                try (BufferedReader queries = Files.newBufferedReader(Paths.get(queriesPathname), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = queries.readLine()) != null) {
+                        int bar = line.indexOf('|');
+                        if (bar < 0) continue;
+
+                        String center = line.substring(0, bar);
+                        if (!searches.containsKey(center)) continue;
+
+                        answer.setLength(0);
+                        answer(searches.get(center), center, line.substring(bar + 1), answer);
+                        output.append(answer).append('\n');
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - number of queries answered with a path
+     */
+    public long answered() {
+        return answered;
+    }
+
+    /**
+     * @return - number of queries about two actors with no path between them
+     */
+    public long unreachable() {
+        return unreachable;
+    }
+
+    /**
+     * @return - number of queries naming someone who isn't in the graph
+     */
+    public long unknown() {
+        return unknown;
+    }
+
+    /**
+     * @return - number of lines skipped for not being "center|actor"
+     */
+    public long malformed() {
+        return malformed;
+    }
+
+    @Override
+    public String toString() {
+        return answered + " paths written, " + unreachable + " with no connection, " + unknown + " naming unknown actors, "
+                + malformed + " malformed lines skipped";
+    }
+
+    /**
+     * Finds every center in the file, in the order they first appear, counting lines that aren't queries
+     */
+    private Set<String> distinctCenters(String queriesPathname) throws IOException {
+        Set<String> centers = new LinkedHashSet<>();
+
+        try (BufferedReader queries = Files.newBufferedReader(Paths.get(queriesPathname), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = queries.readLine()) != null) {
+                int bar = line.indexOf('|');
+                if (bar < 0) {
+                    if (!line.isEmpty()) malformed++;
+                    continue;
+                }
+                centers.add(line.substring(0, bar));
+            }
+        }
+        return centers;
+    }
+
+    /**
+     * Writes the answer to one query by following the BFS parents from the actor back to the center
+     */
+    private void answer(BFSResult search, String center, String actor, StringBuilder answer) {
+        answer.append(center).append('|').append(actor).append('|');
+
+        int v = graph.indexOf(actor);
+        if (search == null || v < 0) {
+            unknown++;
+            answer.append(-1);
+            return;
+        }
+        if (!search.reached(v)) {
+            unreachable++;
+            answer.append(-1);
+            return;
+        }
+
+        answered++;
+        answer.append(search.distance(v)).append('|').append(actor);
+        for (int parent = search.parent(v); parent >= 0; v = parent, parent = search.parent(v)) {
+            answer.append('|').append(String.join(";", graph.label(graph.edgeSlot(v, parent))));
+            answer.append('|').append(graph.actor(parent));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for the pipe-delimited input files ("id|name" and "id|id" lines). Reads through a FileChannel
+ * into one reusable byte buffer and parses ids straight from the bytes, so there is no regex, no String per line and
+ * no String[] per line; names are handed over as byte ranges and only decoded by callers that keep them. Lines that
+ * don't parse are skipped and counted instead of stopping the read
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class PipeFileReader {
+
+    /**
+     * Receives each "id|name" line. The name is bytes[start .. start+length) and is only valid during the call
+     */
+    public interface IdNameHandler {
+        void accept(int id, byte[] bytes, int start, int length);
+    }
+
+    /**
+     * Receives each "id|id" line
+     */
+    public interface IdPairHandler {
+        void accept(int first, int second);
+    }
+
+    /**
+     * Parses one line out of bytes[start .. end), without the line break
+     */
+    private interface LineParser {
+        boolean parse(byte[] bytes, int start, int end);
+    }
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Reads every "id|name" line of the file. Anything after a second '|' is ignored, like line.split("\\|")[1]
+     *
+     * @param pathname - file to read
+     * @param handler - called for each well-formed line, in file order
+     * @return - the number of malformed lines skipped
+     * @throws IOException - if the file can't be opened or read
+     */
+    public static long readIdNames(String pathname, IdNameHandler handler) throws IOException {
+        int[] id = new int[1];
+
+        return read(pathname, (bytes, start, end) -> {
+            int bar = parseInt(bytes, start, end, id);
+            if (bar < 0 || bar == end || bytes[bar] != '|') return false;
+
+            // the name runs up to the next '|' or the end of the line
+            int nameEnd = bar + 1;
+            while (nameEnd < end && bytes[nameEnd] != '|') nameEnd++;
+
+            handler.accept(id[0], bytes, bar + 1, nameEnd - bar - 1);
+            return true;
+        });
+    }
+
+    /**
+     * Reads every "id|id" line of the file
+     *
+     * @param pathname - file to read
+     * @param handler - called for each well-formed line, in file order
+     * @return - the number of malformed lines skipped
+     * @throws IOException - if the file can't be opened or read
+     */
+    public static long readIdPairs(String pathname, IdPairHandler handler) throws IOException {
+        return read(pathname, pairParser(handler));
+    }
+
+    /**
+     * Reads the "id|id" lines in one byte range of the file, as returned by splitLines
+     *
+     * @param pathname - file to read
+     * @param from - first byte of the range, at the start of a line
+     * @param to - end of the range (exclusive), at the start of a line or the end of the file
+     * @param handler - called for each well-formed line in the range, in file order
+     * @return - the number of malformed lines skipped
+     * @throws IOException - if the file can't be opened or read
+     */
+    public static long readIdPairs(String pathname, long from, long to, IdPairHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)) {
+            return read(channel, from, to, pairParser(handler));
+        }
+    }
+
+    /**
+     * Splits the file into at most the given number of byte ranges of about the same size, moving every boundary
+     * forward to just after a line break so no line is split across two ranges
+     *
+     * @param pathname - file to split
+     * @param parts - number of ranges wanted
+     * @return - the boundaries; range i is [bounds[i], bounds[i+1]), and there may be fewer ranges than asked for
+     * @throws IOException - if the file can't be opened or read
+     */
+    public static long[] splitLines(String pathname, int parts) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = new long[parts + 1];
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            int count = 1;
+
+            for (int i = 1; i < parts; i++) {
+                long boundary = nextLineStart(channel, Math.max(size * i / parts, bounds[count - 1]), size, buffer);
+
+                // ranges that would be empty (one very long line, or a tiny file) are dropped
+                if (boundary > bounds[count - 1] && boundary < size) bounds[count++] = boundary;
+            }
+            bounds[count] = size;
+
+            return Arrays.copyOf(bounds, count + 1);
+        }
+    }
+
+    /**
+     * Decodes a name handed to an IdNameHandler
+     */
+    public static String decode(byte[] bytes, int start, int length) {
+        return new String(bytes, start, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parser for "id|id" lines that passes both ids to the handler
+     */
+    private static LineParser pairParser(IdPairHandler handler) {
+        int[] first = new int[1], second = new int[1];
+
+        return (bytes, start, end) -> {
+            int bar = parseInt(bytes, start, end, first);
+            if (bar < 0 || bar == end || bytes[bar] != '|') return false;
+
+            // the second id has to run to the end of the line
+            if (parseInt(bytes, bar + 1, end, second) != end) return false;
+
+            handler.accept(first[0], second[0]);
+            return true;
+        };
+    }
+
+    /**
+     * Opens the file and parses every line of it
+     */
+    private static long read(String pathname, LineParser parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)) {
+            return read(channel, 0, channel.size(), parser);
+        }
+    }
+
+    /**
+     * Parses the lines in [from, to) of the channel, which must start at the beginning of a line
+     *
+     * @return - the number of malformed lines skipped
+     */
+    private static long read(FileChannel channel, long from, long to, LineParser parser) throws IOException {
+        byte[] bytes = new byte[BUFFER_BYTES];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = from, malformed = 0;
+        int filled = 0;
+
+        while (position < to || filled > 0) {
+
+            // top up the buffer from the channel, unless everything up to the end has been read
+            int read = 0;
+            if (position < to) {
+                buffer.limit((int) Math.min(bytes.length, filled + (to - position)));
+                buffer.position(filled);
+                read = channel.read(buffer, position);
+                if (read < 0) to = position;
+                else position += read;
+                filled = buffer.position();
+            }
+            boolean atEnd = position >= to;
+
+            // parse every complete line in the buffer
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (bytes[i] == '\n') {
+                    if (!parseLine(parser, bytes, lineStart, i)) malformed++;
+                    lineStart = i + 1;
+                }
+            }
+
+            // the last line of the range doesn't need a line break
+            if (atEnd && lineStart < filled) {
+                if (!parseLine(parser, bytes, lineStart, filled)) malformed++;
+                lineStart = filled;
+            }
+
+            // move any partial line to the front, growing the buffer if one line fills all of it
+            filled -= lineStart;
+            System.arraycopy(bytes, lineStart, bytes, 0, filled);
+            if (filled == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                buffer = ByteBuffer.wrap(bytes);
+            }
+            if (atEnd && filled == 0) break;
+        }
+
+        return malformed;
+    }
+
+    /**
+     * @return - the position just after the first line break at or after position, or size if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        // a boundary at the very start of the file, or right after a line break, is already a line start
+        if (position == 0) return 0;
+        position--;
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Strips a trailing '\r' and parses the line; blank lines count as malformed
+     */
+    private static boolean parseLine(LineParser parser, byte[] bytes, int start, int end) {
+        if (end > start && bytes[end - 1] == '\r') end--;
+        return end > start && parser.parse(bytes, start, end);
+    }
+
+    /**
+     * Parses a decimal int starting at start, with an optional leading '+' or '-' like Integer.parseInt
+     *
+     * @param result - receives the value
+     * @return - the index just past the last digit, or -1 if there are no digits or the value overflows
+     */
+    private static int parseInt(byte[] bytes, int start, int end, int[] result) {
+        boolean negative = start < end && bytes[start] == '-';
+        int i = start < end && (negative || bytes[start] == '+') ? start + 1 : start;
+        int digits = i;
+        long value = 0;
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+
+        while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+            value = value * 10 + (bytes[i] - '0');
+            if (value > limit) return -1;
+            i++;
+        }
+        if (i == digits) return -1;
+
+        result[0] = (int) (negative ? -value : value);
+        return i;
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Estimated average separation of every actor connected to a center, from BFS runs out of a random sample of pivots
+ * instead of out of every actor. An actor's average separation is the mean distance to the rest of the component, so
+ * the mean distance to the pivots estimates it, with a confidence interval from the spread of those distances. The
+ * cost is one BFS per pivot, so a few hundred pivots give an estimate of the whole component in seconds
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class SeparationEstimate {
+
+    private static final double Z_95 = 1.959964;    // 95% of a normal distribution is within this many standard deviations
+
+    private final CompactBaconGraph graph;
+    private final BFSResult centerBFS;              // actors it reached make up the component
+    private final int[] pivots;
+    private final boolean[] isPivot;
+    private final long[] sums;                      // distance from each actor to every pivot
+    private final long[] squares;                   // same for the squared distances
+
+    /**
+     * Samples the pivots from the actors the center's BFS reached and searches from each of them
+     *
+     * @param graph - graph of every actor
+     * @param centerBFS - BFS from the center on the graph
+     * @param numPivots - number of pivots; every connected actor is used if there are fewer
+     * @param seed - seed for picking the pivots, so the same seed picks the same pivots
+     * @param threads - number of worker threads
+     * @param listener - told about progress as pivots finish (may be null)
+     */
+    public SeparationEstimate(CompactBaconGraph graph, BFSResult centerBFS, int numPivots, long seed, int threads,
+                              ParallelSeparationEngine.ProgressListener listener) {
+        if (numPivots < 1) throw new IllegalArgumentException("Need at least one pivot");
+        this.graph = graph;
+        this.centerBFS = centerBFS;
+
+        // every connected actor, then a partial shuffle to pick the pivots without repeats
+        int[] component = new int[centerBFS.numReached()];
+        int size = 0;
+        for (int v = 0; v < graph.numVertices(); v++) {
+            if (centerBFS.reached(v)) component[size++] = v;
+        }
+
+        Random random = new Random(seed);
+        pivots = new int[Math.min(numPivots, size)];
+        isPivot = new boolean[graph.numVertices()];
+        for (int i = 0; i < pivots.length; i++) {
+            int j = i + random.nextInt(size - i);
+            int swap = component[i];
+            component[i] = component[j];
+            component[j] = swap;
+
+            pivots[i] = component[i];
+            isPivot[pivots[i]] = true;
+        }
+
+        // the graph is undirected, so the distance from a pivot to an actor is the distance from the actor to the pivot
+        sums = new long[graph.numVertices()];
+        squares = new long[graph.numVertices()];
+        new ParallelSeparationEngine(graph, threads).sumDistances(pivots, sums, squares, listener);
+    }
+
+    /**
+     * @return - number of pivots searched from
+     */
+    public int numPivots() {
+        return pivots.length;
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - whether the actor is connected to the center
+     */
+    public boolean contains(int v) {
+        return v < isPivot.length && centerBFS.reached(v);
+    }
+
+    /**
+     * @param v - vertex id of an actor connected to the center
+     * @return - the mean distance from the actor to the pivots other than itself, or NaN if it is the only pivot
+     */
+    public double averageSeparation(int v) {
+        return (double) sums[v] / samples(v);
+    }
+
+    /**
+     * Half the width of the 95% confidence interval around the estimate, from the spread of the actor's distances to
+     * the pivots. The interval shrinks to nothing once every other actor in the component is a pivot
+     *
+     * @param v - vertex id of an actor connected to the center
+     * @return - how far the exact average separation is likely to be from the estimate, or NaN with fewer than 2 pivots
+     */
+    public double halfWidth(int v) {
+        int m = samples(v);
+        int others = centerBFS.numReached() - 1;
+        if (m < 2) return Double.NaN;
+
+        // sample variance of the distances, then the standard error of the mean for sampling without replacement
+        double mean = (double) sums[v] / m;
+        double variance = Math.max(0, (squares[v] - m * mean * mean) / (m - 1));
+        double correction = others > 1 ? (double) (others - m) / (others - 1) : 0;
+
+        return Z_95 * Math.sqrt(variance / m * correction);
+    }
+
+    /**
+     * @param k - number of actors wanted
+     * @return - the k connected actors with the lowest estimated average separation, lowest first
+     */
+    public List<String> top(int k) {
+        int[] ids = new int[centerBFS.numReached()];
+        double[] scores = new double[ids.length];
+        int count = 0;
+
+        for (int v = 0; v < graph.numVertices(); v++) {
+            if (centerBFS.reached(v)) {
+                ids[count] = v;
+                scores[count++] = averageSeparation(v);
+            }
+        }
+
+        List<String> top = new ArrayList<>();
+        for (int index : GraphLib.topK(scores, k, false)) {
+            top.add(graph.actor(ids[index]));
+        }
+        return top;
+    }
+
+    /**
+     * How well the estimate matches exact average separations
+     *
+     * @param exact - exact average separations of the same component
+     * @param k - length of the leaderboards to compare
+     * @return - the share of the exact top k that the estimated top k also has, the mean absolute error, and the share
+     * of actors whose exact average separation is inside their 95% confidence interval
+     */
+    public String compareWith(SeparationIndex exact, int k) {
+        List<String> estimatedTop = top(k), exactTop = exact.top(k);
+        int shared = 0;
+        for (String actor : exactTop) {
+            if (estimatedTop.contains(actor)) shared++;
+        }
+
+        double totalError = 0;
+        int covered = 0, count = 0;
+        for (int v = 0; v < graph.numVertices(); v++) {
+            if (!centerBFS.reached(v) || !exact.contains(v)) continue;
+
+            double error = Math.abs(averageSeparation(v) - exact.averageSeparation(v));
+            totalError += error;
+            if (error <= halfWidth(v)) covered++;
+            count++;
+        }
+
+        return shared + " of the exact top " + exactTop.size() + " are in the estimated top " + estimatedTop.size()
+                + ", mean absolute error " + String.format("%.4f", totalError / count)
+                + ", " + String.format("%.1f", 100.0 * covered / count) + "% of exact values inside their 95% interval";
+    }
+
+    /**
+     * @return - number of pivots other than the actor itself
+     */
+    private int samples(int v) {
+        return isPivot[v] ? pivots.length - 1 : pivots.length;
+    }
+}
@@ -0,0 +1,373 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Average separation of every actor connected to a center, kept as the total distance and number of actors reached
+ * from each one so it can follow the graph as deltas are applied. After a delta, only actors whose distances to the
+ * rest of the component actually got shorter, and actors that just joined the component, are searched again; every
+ * other actor just adds the distances to the actors that just joined, worked out from a few BFS of the old graph
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class SeparationIndex implements LiveBaconGraph.Listener {
+
+    private static final int MAX_ENDPOINTS = 256;           // more distinct endpoints than this and everything is searched again
+    private static final long MAX_DISTANCE_INTS = 1L << 24; // or if their old distances would take more ints than this
+    private static final long MAX_JOIN_WORK = 50_000_000L;  // same for actors that join through several endpoints at once
+    private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+    private CompactBaconGraph graph;
+    private final int center;
+    private final int threads;
+    private long[] totals;      // total distance from each actor in the component to the rest of it
+    private int[] reached;      // actors each one reaches including itself, or 0 for actors outside the component
+    private int size;
+    private int lastSearched;   // actors searched again by the last update
+
+    /**
+     * Computes the average separation of every actor the BFS reached
+     *
+     * @param graph - graph of every actor
+     * @param centerBFS - BFS from the center on the graph
+     * @param threads - number of worker threads
+     * @param listener - told about progress as actors finish (may be null)
+     */
+    public SeparationIndex(CompactBaconGraph graph, BFSResult centerBFS, int threads, ParallelSeparationEngine.ProgressListener listener) {
+        this.graph = graph;
+        this.center = centerBFS.source();
+        this.threads = threads;
+        this.totals = new long[graph.numVertices()];
+        this.reached = new int[graph.numVertices()];
+
+        search(reachedIds(centerBFS, null), listener);
+    }
+
+    /**
+     * @param v - vertex id
+     * @return - whether the actor is connected to the center
+     */
+    public boolean contains(int v) {
+        return v < reached.length && reached[v] > 0;
+    }
+
+    /**
+     * @param v - vertex id of an actor connected to the center
+     * @return - the actor's average separation, as GraphLib.averageSeparation would compute it
+     */
+    public double averageSeparation(int v) {
+        return (double) totals[v] / (reached[v] - 1);
+    }
+
+    /**
+     * @return - number of actors connected to the center, including the center
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - number of actors the last update had to search from again
+     */
+    public int lastSearched() {
+        return lastSearched;
+    }
+
+    /**
+     * @param k - number of actors wanted
+     * @return - the k connected actors with the lowest average separation, lowest first
+     */
+    public List<String> top(int k) {
+        int[] ids = new int[size];
+        double[] scores = new double[size];
+        int count = 0;
+
+        for (int v = 0; v < reached.length; v++) {
+            if (reached[v] > 0) {
+                ids[count] = v;
+                scores[count++] = averageSeparation(v);
+            }
+        }
+
+        List<String> top = new ArrayList<>();
+        for (int index : GraphLib.topK(scores, k, false)) {
+            top.add(graph.actor(ids[index]));
+        }
+        return top;
+    }
+
+    /**
+     * Brings every average separation up to date with the graph the delta was applied to
+     *
+     * @param delta - the applied delta, whose base must be the graph the index is on
+     * @param updated - the graph delta.apply() returned
+     */
+    @Override
+    public void update(GraphDelta delta, CompactBaconGraph updated) {
+        if (delta.base() != graph) throw new IllegalArgumentException("The delta wasn't made from this index's graph");
+
+        CompactBaconGraph old = graph;
+        graph = updated;
+        totals = Arrays.copyOf(totals, updated.numVertices());
+        reached = Arrays.copyOf(reached, updated.numVertices());
+        lastSearched = 0;
+
+        // new actors without any movies, or movies added to existing edges, don't move anybody
+        if (delta.numInsertedEdges() == 0) return;
+
+        // actors that joined the center's component have to be searched from in any case
+        BFSResult centerBFS = GraphLib.hybridBFS(updated, center);
+        int[] joined = reachedIds(centerBFS, reached);
+
+        // the distinct endpoints of the inserted edges; too many and it's simpler to search everything again
+        int[] endpoints = endpoints(delta);
+        if (endpoints.length > MAX_ENDPOINTS || (long) endpoints.length * old.numVertices() > MAX_DISTANCE_INTS) {
+            searchAll(centerBFS);
+            return;
+        }
+
+        // distances from every endpoint in the old graph (an endpoint that is a new actor reaches only itself)
+        int w = endpoints.length;
+        int[][] oldDistances = new int[w][];
+        for (int i = 0; i < w; i++) {
+            if (endpoints[i] < old.numVertices()) oldDistances[i] = GraphLib.hybridBFS(old, endpoints[i]).distances();
+        }
+
+        // shortest paths between endpoints in the new graph: old paths between them, plus the inserted edges
+        int[][] through = new int[w][w];
+        for (int i = 0; i < w; i++) {
+            for (int j = 0; j < w; j++) {
+                int distance = oldDistance(oldDistances, endpoints, i, endpoints[j]);
+                through[i][j] = distance >= 0 ? distance : INFINITY;
+            }
+        }
+        for (int e = 0; e < delta.numInsertedEdges(); e++) {
+            int i = Arrays.binarySearch(endpoints, delta.insertedFirst(e)), j = Arrays.binarySearch(endpoints, delta.insertedSecond(e));
+            through[i][j] = through[j][i] = Math.min(through[i][j], 1);
+        }
+        for (int k = 0; k < w; k++) {
+            for (int i = 0; i < w; i++) {
+                for (int j = 0; j < w; j++) {
+                    through[i][j] = Math.min(through[i][j], through[i][k] + through[k][j]);
+                }
+            }
+        }
+
+        // the endpoints that were already in the center's component, which every actor in it could reach
+        int[] inside = new int[w];
+        int numInside = 0;
+        for (int i = 0; i < w; i++) {
+            if (endpoints[i] < old.numVertices() && reached[endpoints[i]] > 0) inside[numInside++] = i;
+        }
+
+        // an actor's distances only get shorter if some pair of those endpoints got closer than it used to be
+        int numShortcuts = 0;
+        int[] shortcutFrom = new int[w * w], shortcutTo = new int[w * w];
+        for (int i : Arrays.copyOf(inside, numInside)) {
+            for (int j : Arrays.copyOf(inside, numInside)) {
+                int distance = oldDistance(oldDistances, endpoints, i, endpoints[j]);
+                if (through[i][j] < distance) {
+                    shortcutFrom[numShortcuts] = i;
+                    shortcutTo[numShortcuts++] = j;
+                }
+            }
+        }
+
+        // the joined actors grouped by their old component, which the endpoints in it tell apart
+        JoinedComponents components = new JoinedComponents(joined, oldDistances, endpoints);
+        if (components.multiEndpointWork * size > MAX_JOIN_WORK) {
+            searchAll(centerBFS);
+            return;
+        }
+
+        // every actor already in the component either gets searched again or just adds the joined actors
+        int[] again = new int[size];
+        int numAgain = 0;
+        int[] before = new int[w], after = new int[w];
+
+        for (int s = 0; s < old.numVertices(); s++) {
+            if (reached[s] == 0) continue;
+
+            for (int k = 0; k < numInside; k++) {
+                before[inside[k]] = oldDistances[inside[k]][s];
+            }
+
+            boolean shorter = false;
+            for (int c = 0; c < numShortcuts && !shorter; c++) {
+                shorter = before[shortcutTo[c]] - before[shortcutFrom[c]] > through[shortcutFrom[c]][shortcutTo[c]];
+            }
+            if (shorter) {
+                again[numAgain++] = s;
+                continue;
+            }
+
+            if (joined.length > 0) {
+                // the new distance to each endpoint the joined actors hang off, through the endpoints it could reach
+                for (int j : components.attachments) {
+                    after[j] = INFINITY;
+                    for (int k = 0; k < numInside; k++) {
+                        after[j] = Math.min(after[j], before[inside[k]] + through[inside[k]][j]);
+                    }
+                }
+                totals[s] += components.totalDistance(after);
+                reached[s] += joined.length;
+            }
+        }
+
+        // search again from the actors whose distances changed and the actors that joined
+        int[] sources = Arrays.copyOf(again, numAgain + joined.length);
+        System.arraycopy(joined, 0, sources, numAgain, joined.length);
+        search(sources, null);
+    }
+
+    /**
+     * Searches again from every actor in the center's component
+     */
+    private void searchAll(BFSResult centerBFS) {
+        Arrays.fill(reached, 0);
+        size = 0;
+        search(reachedIds(centerBFS, null), null);
+    }
+
+    /**
+     * Runs a BFS from each source on the current graph and stores its totals
+     */
+    private void search(int[] sources, ParallelSeparationEngine.ProgressListener listener) {
+        int[] numReached = new int[sources.length];
+        long[] sourceTotals = new ParallelSeparationEngine(graph, threads).totalDistances(sources, numReached, listener);
+
+        for (int i = 0; i < sources.length; i++) {
+            if (reached[sources[i]] == 0) size++;
+            totals[sources[i]] = sourceTotals[i];
+            reached[sources[i]] = numReached[i];
+        }
+        lastSearched += sources.length;
+    }
+
+    /**
+     * @param result - a BFS result
+     * @param skip - actors to leave out where skip[v] > 0 (null to keep every actor)
+     * @return - the ids of the actors the BFS reached, in increasing order
+     */
+    private static int[] reachedIds(BFSResult result, int[] skip) {
+        int[] ids = new int[result.numReached()];
+        int count = 0;
+        for (int v = 0; v < result.distances().length; v++) {
+            if (result.reached(v) && (skip == null || v >= skip.length || skip[v] == 0)) ids[count++] = v;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * @return - the distinct endpoints of the delta's inserted edges, in increasing order
+     */
+    private static int[] endpoints(GraphDelta delta) {
+        int[] endpoints = new int[2 * delta.numInsertedEdges()];
+        for (int e = 0; e < delta.numInsertedEdges(); e++) {
+            endpoints[2 * e] = delta.insertedFirst(e);
+            endpoints[2 * e + 1] = delta.insertedSecond(e);
+        }
+        Arrays.sort(endpoints);
+
+        int count = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            if (count == 0 || endpoints[count - 1] != endpoints[i]) endpoints[count++] = endpoints[i];
+        }
+        return Arrays.copyOf(endpoints, count);
+    }
+
+    /**
+     * @return - the old distance from endpoint i to v, or -1 if v wasn't reachable from it
+     */
+    private static int oldDistance(int[][] oldDistances, int[] endpoints, int i, int v) {
+        if (oldDistances[i] == null) return v == endpoints[i] ? 0 : -1;
+        return v < oldDistances[i].length ? oldDistances[i][v] : -1;
+    }
+
+    /**
+     * The actors that joined the center's component in an update, grouped by the component they used to be in. A
+     * group reached through a single endpoint adds its size times the distance to that endpoint plus a fixed sum;
+     * a group with several endpoints has to take the nearest endpoint actor by actor
+     */
+    private static final class JoinedComponents {
+        private final List<int[]> groupEndpoints = new ArrayList<>();   // endpoint indices in each group
+        private final List<long[]> groupSums = new ArrayList<>();       // {size, total old distance to the endpoint} (single)
+        private final List<int[][]> groupDistances = new ArrayList<>(); // old distance from each endpoint to each actor (several)
+        final int[] attachments;                                        // endpoint indices of every group
+        long multiEndpointWork;
+
+        JoinedComponents(int[] joined, int[][] oldDistances, int[] endpoints) {
+            boolean[] grouped = new boolean[joined.length];
+
+            for (int a = 0; a < joined.length; a++) {
+                if (grouped[a]) continue;
+
+                // the endpoints that could reach this actor in the old graph are the endpoints of its old component
+                int[] members = new int[endpoints.length];
+                int numMembers = 0;
+                for (int i = 0; i < endpoints.length; i++) {
+                    if (oldDistance(oldDistances, endpoints, i, joined[a]) >= 0) members[numMembers++] = i;
+                }
+                members = Arrays.copyOf(members, numMembers);
+
+                // every joined actor the first endpoint reached is in the same old component
+                List<Integer> actors = new ArrayList<>();
+                for (int b = a; b < joined.length; b++) {
+                    if (!grouped[b] && oldDistance(oldDistances, endpoints, members[0], joined[b]) >= 0) {
+                        grouped[b] = true;
+                        actors.add(joined[b]);
+                    }
+                }
+
+                groupEndpoints.add(members);
+                if (numMembers == 1) {
+                    long sum = 0;
+                    for (int actor : actors) sum += oldDistance(oldDistances, endpoints, members[0], actor);
+                    groupSums.add(new long[]{actors.size(), sum});
+                    groupDistances.add(null);
+                }
+                else {
+                    int[][] distances = new int[numMembers][actors.size()];
+                    for (int m = 0; m < numMembers; m++) {
+                        for (int x = 0; x < actors.size(); x++) {
+                            distances[m][x] = oldDistance(oldDistances, endpoints, members[m], actors.get(x));
+                        }
+                    }
+                    groupSums.add(null);
+                    groupDistances.add(distances);
+                    multiEndpointWork += (long) numMembers * actors.size();
+                }
+            }
+
+            attachments = groupEndpoints.stream().flatMapToInt(Arrays::stream).toArray();
+        }
+
+        /**
+         * @param after - new distance from the actor to every endpoint
+         * @return - total new distance from the actor to every joined actor
+         */
+        long totalDistance(int[] after) {
+            long total = 0;
+
+            for (int g = 0; g < groupEndpoints.size(); g++) {
+                int[] members = groupEndpoints.get(g);
+
+                if (groupSums.get(g) != null) {
+                    long[] sums = groupSums.get(g);
+                    total += sums[0] * after[members[0]] + sums[1];
+                }
+                else {
+                    int[][] distances = groupDistances.get(g);
+                    for (int x = 0; x < distances[0].length; x++) {
+                        int nearest = INFINITY;
+                        for (int m = 0; m < members.length; m++) {
+                            nearest = Math.min(nearest, after[members[m]] + distances[m][x]);
+                        }
+                        total += nearest;
+                    }
+                }
+            }
+            return total;
+        }
+    }
+}
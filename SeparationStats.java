@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+/**
+ * Separation statistics of one BFS source, kept as a histogram of how many vertices sit at each distance. The
+ * average separation, eccentricity and reach all come straight from the histogram, so nothing has to walk the
+ * path tree again
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class SeparationStats {
+
+    private final int[] histogram;      // histogram[d] = number of vertices d hops from the source; histogram[0] = 1
+    private final int numReached;       // including the source
+    private final long totalDistance;   // sum of the distances to every reached vertex
+
+    /**
+     * @param histogram - number of vertices at each distance, starting with the source at distance 0; trailing
+     *                  zeroes are dropped
+     */
+    public SeparationStats(int[] histogram) {
+        int length = histogram.length;
+        while (length > 1 && histogram[length - 1] == 0) length--;
+        this.histogram = Arrays.copyOf(histogram, length);
+
+        int reached = 0;
+        long total = 0;
+        for (int distance = 0; distance < length; distance++) {
+            reached += histogram[distance];
+            total += (long) distance * histogram[distance];
+        }
+        this.numReached = reached;
+        this.totalDistance = total;
+    }
+
+    /**
+     * @return - average number of hops from the source to the other reached vertices (NaN if it reached no others,
+     * like GraphLib.averageSeparation)
+     */
+    public double averageSeparation() {
+        return (double) totalDistance / (numReached - 1);
+    }
+
+    /**
+     * @return - distance to the farthest reached vertex
+     */
+    public int eccentricity() {
+        return histogram.length - 1;
+    }
+
+    /**
+     * @return - number of vertices reached, including the source
+     */
+    public int numReached() {
+        return numReached;
+    }
+
+    /**
+     * @return - sum of the distances from the source to every reached vertex
+     */
+    public long totalDistance() {
+        return totalDistance;
+    }
+
+    /**
+     * @param distance - number of hops
+     * @return - number of vertices exactly that far from the source
+     */
+    public int count(int distance) {
+        return distance >= 0 && distance < histogram.length ? histogram[distance] : 0;
+    }
+
+    /**
+     * @return - copy of the histogram, indexed by distance
+     */
+    public int[] histogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (int distance = 1; distance < histogram.length; distance++) {
+            if (distance > 1) result.append(", ");
+            result.append(distance).append(": ").append(histogram[distance]);
+        }
+        return result.append('}').toString();
+    }
+}
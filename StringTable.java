@@ -0,0 +1,85 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only table of strings indexed by id. The strings either live on the heap, or stay UTF-8 encoded in a
+ * (usually memory-mapped) buffer and are only decoded, once each, the first time they are asked for
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class StringTable {
+
+    private final String[] strings;     // decoded strings; null entries haven't been decoded yet
+    private final ByteBuffer encoded;   // UTF-8 bytes of every string back to back, or null if all are on the heap
+    private final IntBuffer offsets;    // string i is encoded[offsets[i] .. offsets[i+1])
+
+    /**
+     * Table of strings already on the heap
+     */
+    public StringTable(String[] strings) {
+        this.strings = strings;
+        this.encoded = null;
+        this.offsets = null;
+    }
+
+    /**
+     * Table of strings that stay encoded in the buffer until they are asked for
+     *
+     * @param encoded - UTF-8 bytes of every string back to back
+     * @param offsets - start of every string in encoded, plus the end of the last one
+     */
+    StringTable(ByteBuffer encoded, IntBuffer offsets) {
+        this.strings = new String[offsets.limit() - 1];
+        this.encoded = encoded;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param id - index of the string
+     * @return - the string, decoding it first if needed
+     */
+    public String get(int id) {
+        String string = strings[id];
+
+        // decode the string the first time it's asked for; two threads racing here just decode it twice
+        if (string == null) {
+            int start = offsets.get(id);
+            byte[] bytes = new byte[offsets.get(id + 1) - start];
+            encoded.get(start, bytes);
+
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     * @param more - strings to add after the last one
+     * @param count - number of entries of more to add
+     * @return - a new heap table with every string of this one followed by the new ones
+     */
+    public StringTable append(String[] more, int count) {
+        String[] all = new String[strings.length + count];
+        for (int id = 0; id < strings.length; id++) {
+            all[id] = get(id);
+        }
+        System.arraycopy(more, 0, all, strings.length, count);
+        return new StringTable(all);
+    }
+
+    /**
+     * Rough number of heap bytes held by the table; strings still sitting in a mapped buffer don't count
+     */
+    public long estimatedBytes() {
+        long bytes = 16 + 16 + 4L * strings.length;
+        for (String string : strings) {
+            if (string != null) bytes += 56 + string.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates synthetic actors.txt / movies.txt / movie-actors.txt files in the same format as the real dataset, so
+ * performance can be measured at any size without it. Cast sizes follow a power law (most movies have a handful of
+ * actors, a few have hundreds) and actors are picked with a skewed popularity, so a few actors appear in many movies
+ * and the graph is a small world like the real one. Actor 1 is always "Kevin Bacon"
+ *
+ * @author Mason Childers, CS10, 23W
+ */
+public class SyntheticBaconData {
+
+    private static final int MAX_CAST = 250;
+
+    /**
+     * Writes the three files into the directory
+     *
+     * @param directory - existing directory to write into
+     * @param numActors - number of actors
+     * @param numMovies - number of movies
+     * @param seed - random seed; the same arguments always give the same files
+     * @throws IOException - if a file can't be written
+     */
+    public static void generate(String directory, int numActors, int numMovies, long seed) throws IOException {
+        Random random = new Random(seed);
+
+        // actors.txt: "id|name"
+        try (Writer output = new BufferedWriter(new FileWriter(directory + "/actors.txt"))) {
+            output.write("1|Kevin Bacon\n");
+            for (int id = 2; id <= numActors; id++) {
+                output.write(id + "|Actor " + id + "\n");
+            }
+        }
+
+        // movies.txt: "id|title"
+        try (Writer output = new BufferedWriter(new FileWriter(directory + "/movies.txt"))) {
+            for (int id = 1; id <= numMovies; id++) {
+                output.write(id + "|Movie " + id + " (" + (1920 + random.nextInt(100)) + ")\n");
+            }
+        }
+
+        // movie-actors.txt: "movie id|actor id", grouped by movie
+        try (Writer output = new BufferedWriter(new FileWriter(directory + "/movie-actors.txt"))) {
+            for (int movie = 1; movie <= numMovies; movie++) {
+                int castSize = castSize(random);
+                for (int i = 0; i < castSize; i++) {
+                    output.write(movie + "|" + popularActor(random, numActors) + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Pareto-distributed cast size: 1 or 2 actors most of the time, occasionally up to MAX_CAST
+     */
+    private static int castSize(Random random) {
+        double pareto = 1 / Math.pow(1 - random.nextDouble(), 1 / 1.3);
+        return (int) Math.min(MAX_CAST, Math.floor(pareto) + 1);
+    }
+
+    /**
+     * Picks an actor id with low ids far more popular than high ones (Kevin Bacon, id 1, most of all)
+     */
+    private static int popularActor(Random random, int numActors) {
+        double u = random.nextDouble();
+        return 1 + (int) (numActors * u * u * u);
+    }
+
+    /**
+     * Writes a dataset from the command line
+     *
+     * @param args - directory, number of actors, number of movies (default actors / 2), seed (default 1)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java SyntheticBaconData <directory> <actors> [movies] [seed]");
+            return;
+        }
+
+        int numActors = Integer.parseInt(args[1]);
+        int numMovies = args.length > 2 ? Integer.parseInt(args[2]) : numActors / 2;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        generate(args[0], numActors, numMovies, seed);
+        System.out.println("Wrote " + numActors + " actors and " + numMovies + " movies to " + args[0]);
+    }
+}